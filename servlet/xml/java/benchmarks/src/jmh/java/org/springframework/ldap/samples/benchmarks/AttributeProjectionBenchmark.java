@@ -0,0 +1,122 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.Name;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.ModificationItem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.ldap.core.ContextMapper;
+import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.ldap.core.LdapClient;
+import org.springframework.ldap.query.LdapQueryBuilder;
+import org.springframework.ldap.samples.utils.LdapTree;
+import org.springframework.ldap.samples.utils.LdapTreeBuilder;
+import org.springframework.ldap.samples.utils.SubtreeSearchLdapTreeBuilder;
+import org.springframework.ldap.support.LdapUtils;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AttributeProjectionBenchmark {
+
+	/**
+	 * The number of entries in the directory.
+	 */
+	@Param({ "1000", "10000" })
+	public int entries;
+
+	/**
+	 * The size of the {@code jpegPhoto} of every person, in bytes.
+	 */
+	@Param({ "1024", "16384" })
+	public int photoSize;
+
+	private EmbeddedDirectory directory;
+
+	private LdapTreeBuilder builder;
+
+	@Setup(Level.Trial)
+	public void startDirectory() throws Exception {
+		Path ldif = BenchmarkLdif.writeCompanies(this.entries);
+		try {
+			this.directory = EmbeddedDirectory.start(BenchmarkLdif.COMPANIES_BASE, ldif);
+		}
+		finally {
+			Files.delete(ldif);
+		}
+		LdapClient ldap = LdapClient.create(this.directory.getContextSource());
+		addPhotos(ldap);
+		this.builder = new SubtreeSearchLdapTreeBuilder(ldap);
+	}
+
+	// Gives every person a photo, so that the full tree is dominated by the one attribute
+	// that the tree view never shows.
+	private void addPhotos(LdapClient ldap) {
+		Random random = new Random(42);
+		List<Name> persons = ldap.search()
+			.query(LdapQueryBuilder.query().attributes("cn").where("objectclass").is("inetOrgPerson"))
+			.toList((ContextMapper<Name>) (ctx) -> ((DirContextOperations) ctx).getDn());
+		for (Name person : persons) {
+			byte[] photo = new byte[this.photoSize];
+			random.nextBytes(photo);
+			ldap.modify(person)
+				.attributes(new ModificationItem(DirContext.ADD_ATTRIBUTE, new BasicAttribute("jpegPhoto", photo)))
+				.execute();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void stopDirectory() {
+		this.directory.close();
+	}
+
+	@Benchmark
+	public LdapTree getLdapTree() {
+		return this.builder.getLdapTree(LdapUtils.emptyLdapName());
+	}
+
+	@Benchmark
+	public LdapTree getLdapTreeWithProjection() {
+		return this.builder.getLdapTree(LdapUtils.emptyLdapName(), "objectclass");
+	}
+
+}
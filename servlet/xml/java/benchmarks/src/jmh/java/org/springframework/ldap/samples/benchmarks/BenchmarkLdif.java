@@ -0,0 +1,97 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.springframework.ldap.samples.ldif.LdifGenerator;
+
+final class BenchmarkLdif {
+
+	static final String COMPANIES_BASE = "dc=jayway,dc=se";
+
+	static final String DEPARTMENTS_BASE = "dc=example,dc=com";
+
+	private static final int COUNTRIES = 10;
+
+	private static final int COMPANIES_PER_COUNTRY = 10;
+
+	private static final int DEPARTMENTS = 5;
+
+	private static final int UNITS_PER_DEPARTMENT = 4;
+
+	private static final int USERS_PER_UNIT = 5;
+
+	private BenchmarkLdif() {
+	}
+
+	/**
+	 * Writes a directory shaped like the one of the plain and odm samples: countries,
+	 * with companies, with persons.
+	 * @param entries the approximate number of entries, including the base entry
+	 * @return the temporary file the entries were written to
+	 * @throws IOException if the file cannot be written
+	 */
+	static Path writeCompanies(int entries) throws IOException {
+		LdifGenerator generator = new LdifGenerator(COMPANIES_BASE);
+		generator.setCountries(COUNTRIES);
+		generator.setCompaniesPerCountry(COMPANIES_PER_COUNTRY);
+		int containers = 1 + COUNTRIES + COUNTRIES * COMPANIES_PER_COUNTRY;
+		generator.setPersonsPerCompany(Math.max(1, (entries - containers) / (COUNTRIES * COMPANIES_PER_COUNTRY)));
+		return write(generator, "companies");
+	}
+
+	/**
+	 * Writes a directory shaped like the one of the user-admin sample: departments, with
+	 * units, with users, and the {@code ROLE_USER} group that all users are members of.
+	 * @param entries the number of entries, including the base entry
+	 * @return the temporary file the entries were written to
+	 * @throws IOException if the file cannot be written
+	 */
+	static Path writeDepartments(int entries) throws IOException {
+		LdifGenerator generator = new LdifGenerator(DEPARTMENTS_BASE);
+		generator.setDepartments(DEPARTMENTS);
+		generator.setUnitsPerDepartment(UNITS_PER_DEPARTMENT);
+		int containers = 2 + DEPARTMENTS + DEPARTMENTS * UNITS_PER_DEPARTMENT + 3;
+		generator.setUsers(Math.max(1, entries - containers));
+		return write(generator, "departments");
+	}
+
+	/**
+	 * Writes only the departments and units of a user-admin directory, with a few users
+	 * in every unit.
+	 * @param departments the number of departments
+	 * @return the temporary file the entries were written to
+	 * @throws IOException if the file cannot be written
+	 */
+	static Path writeDepartmentTree(int departments) throws IOException {
+		LdifGenerator generator = new LdifGenerator(DEPARTMENTS_BASE);
+		generator.setDepartments(departments);
+		generator.setUnitsPerDepartment(UNITS_PER_DEPARTMENT);
+		generator.setUsers(departments * UNITS_PER_DEPARTMENT * USERS_PER_UNIT);
+		return write(generator, "department-tree");
+	}
+
+	private static Path write(LdifGenerator generator, String prefix) throws IOException {
+		Path file = Files.createTempFile(prefix, ".ldif");
+		generator.write(file);
+		return file;
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.ldap.core.LdapClient;
+import org.springframework.ldap.samples.useradmin.domain.impl.DepartmentRepositoryImpl;
+import org.springframework.ldap.samples.useradmin.domain.impl.SubtreeSearchDepartmentRepository;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DepartmentRepositoryBenchmark {
+
+	/**
+	 * The number of departments in the directory, each with four units.
+	 */
+	@Param({ "50", "500" })
+	public int departments;
+
+	private EmbeddedDirectory directory;
+
+	private DepartmentRepositoryImpl listPerDepartment;
+
+	private SubtreeSearchDepartmentRepository subtreeSearch;
+
+	@Setup(Level.Trial)
+	public void startDirectory() throws Exception {
+		Path ldif = BenchmarkLdif.writeDepartmentTree(this.departments);
+		try {
+			this.directory = EmbeddedDirectory.start(BenchmarkLdif.DEPARTMENTS_BASE, ldif);
+		}
+		finally {
+			Files.delete(ldif);
+		}
+		LdapClient ldapClient = LdapClient.create(this.directory.getContextSource());
+		this.listPerDepartment = new DepartmentRepositoryImpl(ldapClient);
+		this.subtreeSearch = new SubtreeSearchDepartmentRepository(ldapClient);
+	}
+
+	@TearDown(Level.Trial)
+	public void stopDirectory() {
+		this.directory.close();
+	}
+
+	/**
+	 * Lists the departments, and then the units of each department.
+	 * @return the units by department
+	 */
+	@Benchmark
+	public Map<String, List<String>> listPerDepartment() {
+		return this.listPerDepartment.getDepartmentMap();
+	}
+
+	/**
+	 * Finds all departments and units with one subtree search.
+	 * @return the units by department
+	 */
+	@Benchmark
+	public Map<String, List<String>> subtreeSearch() {
+		return this.subtreeSearch.getDepartmentMap();
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.benchmarks;
+
+import java.nio.file.Path;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.support.LdapContextSource;
+import org.springframework.ldap.test.unboundid.EmbeddedLdapServer;
+
+public final class EmbeddedDirectory implements AutoCloseable {
+
+	private static final String USER_DN = "uid=admin,ou=system";
+
+	private static final String PASSWORD = "secret";
+
+	private final EmbeddedLdapServer server;
+
+	private final String url;
+
+	private final String base;
+
+	private final LdapContextSource contextSource;
+
+	private EmbeddedDirectory(EmbeddedLdapServer server, String url, String base) {
+		this.server = server;
+		this.url = url;
+		this.base = base;
+		this.contextSource = new LdapContextSource();
+		this.contextSource.setUrl(url);
+		this.contextSource.setBase(base);
+		this.contextSource.setUserDn(USER_DN);
+		this.contextSource.setPassword(PASSWORD);
+		this.contextSource.afterPropertiesSet();
+	}
+
+	/**
+	 * Starts an in-process UnboundID server on a random free port, configured like the
+	 * one that {@code EmbeddedLdapServerFactoryBean} starts for the samples, and imports
+	 * the given LDIF file into it.
+	 * @param base the suffix of the partition, which must be the first entry of the file
+	 * @param ldif the entries to import
+	 * @return the started directory
+	 * @throws Exception if the server cannot be started or the file cannot be imported
+	 */
+	public static EmbeddedDirectory start(String base, Path ldif) throws Exception {
+		InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig(base);
+		config.addAdditionalBindCredentials(USER_DN, PASSWORD);
+		config.setListenerConfigs(InMemoryListenerConfig.createLDAPConfig("LDAP", 0));
+		config.setEnforceSingleStructuralObjectClass(false);
+		config.setEnforceAttributeSyntaxCompliance(true);
+		InMemoryDirectoryServer directoryServer = new InMemoryDirectoryServer(config);
+		directoryServer.importFromLDIF(true, ldif.toFile());
+
+		EmbeddedLdapServer server = new EmbeddedLdapServer(directoryServer);
+		server.start();
+		return new EmbeddedDirectory(server, "ldap://localhost:" + directoryServer.getListenPort(), base);
+	}
+
+	public String getUrl() {
+		return this.url;
+	}
+
+	public String getBase() {
+		return this.base;
+	}
+
+	public ContextSource getContextSource() {
+		return this.contextSource;
+	}
+
+	@Override
+	public void close() {
+		this.server.close();
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.ldap.core.LdapClient;
+import org.springframework.ldap.samples.utils.ForkJoinLdapTreeBuilder;
+import org.springframework.ldap.samples.utils.LdapTree;
+import org.springframework.ldap.samples.utils.LdapTreeBuilder;
+import org.springframework.ldap.samples.utils.SubtreeSearchLdapTreeBuilder;
+import org.springframework.ldap.support.LdapUtils;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LdapTreeBuilderBenchmark {
+
+	/**
+	 * The number of entries in the directory.
+	 */
+	@Param({ "1000", "10000", "100000" })
+	public int entries;
+
+	private EmbeddedDirectory directory;
+
+	private LdapTreeBuilder recursive;
+
+	private LdapTreeBuilder subtreeSearch;
+
+	private ForkJoinLdapTreeBuilder forkJoin;
+
+	@Setup(Level.Trial)
+	public void startDirectory() throws Exception {
+		Path ldif = BenchmarkLdif.writeCompanies(this.entries);
+		try {
+			this.directory = EmbeddedDirectory.start(BenchmarkLdif.COMPANIES_BASE, ldif);
+		}
+		finally {
+			Files.delete(ldif);
+		}
+		LdapClient ldap = LdapClient.create(this.directory.getContextSource());
+		this.recursive = new LdapTreeBuilder(ldap);
+		this.subtreeSearch = new SubtreeSearchLdapTreeBuilder(ldap);
+		this.forkJoin = new ForkJoinLdapTreeBuilder(ldap);
+	}
+
+	@TearDown(Level.Trial)
+	public void stopDirectory() {
+		this.forkJoin.destroy();
+		this.directory.close();
+	}
+
+	@Benchmark
+	public LdapTree getLdapTree() {
+		return this.recursive.getLdapTree(LdapUtils.emptyLdapName());
+	}
+
+	@Benchmark
+	public LdapTree getLdapTreeWithForkJoin() {
+		return this.forkJoin.getLdapTree(LdapUtils.emptyLdapName());
+	}
+
+	@Benchmark
+	public LdapTree getLdapTreeWithSubtreeSearch() {
+		return this.subtreeSearch.getLdapTree(LdapUtils.emptyLdapName());
+	}
+
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.ldif;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.util.Assert;
+
+public class LdifGenerator {
+
+	private static final Log LOG = LogFactory.getLog(LdifGenerator.class);
+
+	private static final String[] TITLES = { "Engineer", "Senior Engineer", "Architect", "Manager", "Accountant",
+			"Support Technician" };
+
+	private final String base;
+
+	private boolean includeBaseEntry = true;
+
+	private int countries;
+
+	private int companiesPerCountry;
+
+	private int personsPerCompany;
+
+	private int departments;
+
+	private int unitsPerDepartment;
+
+	private int users;
+
+	private int groups;
+
+	private int maxGroupSize = 100;
+
+	private long seed = 42;
+
+	/**
+	 * Create a generator that writes entries below the given base. Nothing but the base
+	 * entry is written until some of the counts are set.
+	 * @param base the base DN, for example {@code dc=example,dc=com}
+	 */
+	public LdifGenerator(String base) {
+		this.base = base;
+	}
+
+	/**
+	 * Whether to write the base entry itself. The LDIF populators of the samples expect
+	 * the base entry to exist already, so turn this off for files that they import.
+	 * @param includeBaseEntry {@code true} to write the base entry; default {@code true}
+	 */
+	public void setIncludeBaseEntry(boolean includeBaseEntry) {
+		this.includeBaseEntry = includeBaseEntry;
+	}
+
+	public void setCountries(int countries) {
+		this.countries = countries;
+	}
+
+	public void setCompaniesPerCountry(int companiesPerCountry) {
+		this.companiesPerCountry = companiesPerCountry;
+	}
+
+	public void setPersonsPerCompany(int personsPerCompany) {
+		this.personsPerCompany = personsPerCompany;
+	}
+
+	public void setDepartments(int departments) {
+		this.departments = departments;
+	}
+
+	public void setUnitsPerDepartment(int unitsPerDepartment) {
+		this.unitsPerDepartment = unitsPerDepartment;
+	}
+
+	/**
+	 * The number of users, spread evenly over the units of all departments. All users are
+	 * members of {@code ROLE_USER}, like the users created by the user-admin sample.
+	 * @param users the number of users
+	 */
+	public void setUsers(int users) {
+		this.users = users;
+	}
+
+	/**
+	 * The number of groups besides {@code ROLE_USER} and {@code ROLE_ADMIN}. Each group
+	 * gets a random number of members, between one and the maximum group size.
+	 * @param groups the number of groups
+	 */
+	public void setGroups(int groups) {
+		this.groups = groups;
+	}
+
+	public void setMaxGroupSize(int maxGroupSize) {
+		this.maxGroupSize = maxGroupSize;
+	}
+
+	/**
+	 * The seed for the attribute values and group sizes; the same seed and counts always
+	 * produce the same file.
+	 * @param seed the seed; default {@code 42}
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Returns the number of entries that {@link #write(Writer)} writes.
+	 * @return the number of entries
+	 */
+	public long getEntryCount() {
+		long count = this.includeBaseEntry ? 1 : 0;
+		if (this.countries > 0) {
+			count += this.countries + (long) this.countries * this.companiesPerCountry
+					+ (long) this.countries * this.companiesPerCountry * this.personsPerCompany;
+		}
+		if (this.departments > 0) {
+			count += 1 + this.departments + (long) this.departments * this.unitsPerDepartment + this.users;
+			count += (this.users > 0) ? 3 + this.groups : 0;
+		}
+		return count;
+	}
+
+	public void write(Path file) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			write(writer);
+		}
+	}
+
+	/**
+	 * Writes an LDIF file, configured by {@code --name=value} arguments named after the
+	 * properties of this class, for example
+	 * {@code --base=dc=example,dc=com --departments=10 --unitsPerDepartment=10 --users=1000000 --output=users.ldif}.
+	 * @param args the arguments
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		Map<String, String> options = new LinkedHashMap<>();
+		for (String arg : args) {
+			Assert.isTrue(arg.startsWith("--") && arg.contains("="), () -> "Expected --name=value but got " + arg);
+			options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+		}
+		LdifGenerator generator = new LdifGenerator(options.getOrDefault("base", "dc=example,dc=com"));
+		Path output = Path.of(options.getOrDefault("output", "generated.ldif"));
+		options.forEach((name, value) -> {
+			switch (name) {
+				case "base", "output" -> {
+				}
+				case "includeBaseEntry" -> generator.setIncludeBaseEntry(Boolean.parseBoolean(value));
+				case "countries" -> generator.setCountries(Integer.parseInt(value));
+				case "companiesPerCountry" -> generator.setCompaniesPerCountry(Integer.parseInt(value));
+				case "personsPerCompany" -> generator.setPersonsPerCompany(Integer.parseInt(value));
+				case "departments" -> generator.setDepartments(Integer.parseInt(value));
+				case "unitsPerDepartment" -> generator.setUnitsPerDepartment(Integer.parseInt(value));
+				case "users" -> generator.setUsers(Integer.parseInt(value));
+				case "groups" -> generator.setGroups(Integer.parseInt(value));
+				case "maxGroupSize" -> generator.setMaxGroupSize(Integer.parseInt(value));
+				case "seed" -> generator.setSeed(Long.parseLong(value));
+				default -> throw new IllegalArgumentException("Unknown argument --" + name);
+			}
+		});
+		long start = System.nanoTime();
+		generator.write(output);
+		LOG.info("Wrote " + generator.getEntryCount() + " entries to " + output.toAbsolutePath() + " in "
+				+ (System.nanoTime() - start) / 1_000_000 + " ms");
+	}
+
+	/**
+	 * Writes the entries, parents before children. Each entry is written as soon as it
+	 * has been generated, so the size of the output is not limited by the heap.
+	 * @param writer the writer to write the entries to
+	 * @throws IOException if writing fails
+	 */
+	public void write(Writer writer) throws IOException {
+		Assert.isTrue(this.departments > 0 || this.users == 0, "users need at least one department");
+		Assert.isTrue(this.unitsPerDepartment > 0 || this.users == 0, "users need at least one unit");
+		Assert.isTrue(this.maxGroupSize > 0, "maxGroupSize must be greater than zero");
+		Random random = new Random(this.seed);
+		if (this.includeBaseEntry) {
+			String dc = this.base.split(",")[0].split("=")[1];
+			entry(writer, this.base, "objectclass: top", "objectclass: domain", "dc: " + dc);
+		}
+		writeCompanies(writer, random);
+		writeDepartments(writer, random);
+		writeGroups(writer, random);
+	}
+
+	private void writeCompanies(Writer writer, Random random) throws IOException {
+		for (int country = 0; country < this.countries; country++) {
+			entry(writer, country(country), "objectclass: top", "objectclass: country", "c: Country" + country,
+					"description: Country number " + country);
+			for (int company = 0; company < this.companiesPerCountry; company++) {
+				entry(writer, company(country, company), "objectclass: top", "objectclass: organizationalUnit",
+						"ou: company" + company, "description: Company number " + company + " in Country" + country);
+				for (int person = 0; person < this.personsPerCompany; person++) {
+					String fullName = "Person " + person;
+					entry(writer, "cn=" + fullName + "," + company(country, company), "objectclass: top",
+							"objectclass: person", "objectclass: organizationalPerson", "objectclass: inetOrgPerson",
+							"cn: " + fullName, "sn: Person",
+							"description: Country" + country + ", company" + company + ", " + fullName,
+							"telephoneNumber: " + phone(random));
+				}
+			}
+		}
+	}
+
+	private void writeDepartments(Writer writer, Random random) throws IOException {
+		if (this.departments == 0) {
+			return;
+		}
+		entry(writer, "ou=Departments," + this.base, "objectclass: top", "objectclass: organizationalUnit",
+				"ou: Departments");
+		for (int department = 0; department < this.departments; department++) {
+			entry(writer, department(department), "objectclass: top", "objectclass: organizationalUnit",
+					"ou: Department " + department);
+			for (int unit = 0; unit < this.unitsPerDepartment; unit++) {
+				entry(writer, unit(department, unit), "objectclass: top", "objectclass: organizationalUnit",
+						"ou: Unit " + unit);
+				for (int user = department + unit * this.departments; user < this.users; user += this.departments
+						* this.unitsPerDepartment) {
+					entry(writer, user(user) + "," + this.base, "objectclass: top", "objectclass: person",
+							"objectclass: organizationalPerson", "objectclass: inetOrgPerson", "cn: User " + user,
+							"givenName: User", "sn: " + user, "employeeNumber: " + user,
+							"mail: user." + user + "@example.com", "title: " + TITLES[random.nextInt(TITLES.length)],
+							"telephoneNumber: " + phone(random));
+				}
+			}
+		}
+	}
+
+	private void writeGroups(Writer writer, Random random) throws IOException {
+		if (this.departments == 0 || this.users == 0) {
+			return;
+		}
+		entry(writer, "ou=Groups," + this.base, "objectclass: top", "objectclass: organizationalUnit", "ou: Groups");
+		group(writer, "ROLE_USER", "Ordinary Users", 0, this.users);
+		group(writer, "ROLE_ADMIN", "Super Users", 0, 1);
+		for (int group = 0; group < this.groups; group++) {
+			int size = 1 + random.nextInt(Math.min(this.maxGroupSize, this.users));
+			group(writer, "Group " + group, "Group number " + group, random.nextInt(this.users), size);
+		}
+	}
+
+	// The members are consecutive users, wrapping around at the last one, so that they
+	// never have to be held in memory
+	private void group(Writer writer, String name, String description, int firstUser, int size) throws IOException {
+		writer.write("dn: cn=" + name + ",ou=Groups," + this.base + "\n");
+		writer.write("objectclass: top\nobjectclass: groupOfNames\n");
+		writer.write("cn: " + name + "\n");
+		writer.write("description: " + description + "\n");
+		for (int i = 0; i < size; i++) {
+			writer.write("member: " + user((firstUser + i) % this.users) + "," + this.base + "\n");
+		}
+		writer.write("\n");
+	}
+
+	private String country(int country) {
+		return "c=Country" + country + "," + this.base;
+	}
+
+	private String company(int country, int company) {
+		return "ou=company" + company + "," + country(country);
+	}
+
+	private String department(int department) {
+		return "ou=Department " + department + ",ou=Departments," + this.base;
+	}
+
+	private String unit(int department, int unit) {
+		return "ou=Unit " + unit + "," + department(department);
+	}
+
+	// Relative to the base
+	private String user(int user) {
+		return "cn=User " + user + ",ou=Unit " + ((user / this.departments) % this.unitsPerDepartment)
+				+ ",ou=Department " + (user % this.departments) + ",ou=Departments";
+	}
+
+	private static String phone(Random random) {
+		return "+46 555-" + (100000 + random.nextInt(900000));
+	}
+
+	private static void entry(Writer writer, String dn, String... attributes) throws IOException {
+		writer.write("dn: " + dn + "\n");
+		for (String attribute : attributes) {
+			writer.write(attribute + "\n");
+		}
+		writer.write("\n");
+	}
+
+}
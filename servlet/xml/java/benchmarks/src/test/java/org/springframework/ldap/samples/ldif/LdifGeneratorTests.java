@@ -0,0 +1,89 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.ldif;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.SearchScope;
+import com.unboundid.ldif.LDIFReader;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LdifGeneratorTests {
+
+	@Test
+	void writeWhenSameSettingsThenSameOutput() throws IOException {
+		assertThat(write(generator(42))).isEqualTo(write(generator(42)));
+		assertThat(write(generator(42))).isNotEqualTo(write(generator(7)));
+	}
+
+	@Test
+	void writeWhenImportedThenAllEntriesAreValid() throws Exception {
+		LdifGenerator generator = generator(42);
+		String ldif = write(generator);
+
+		InMemoryDirectoryServer server = new InMemoryDirectoryServer(
+				new InMemoryDirectoryServerConfig("dc=example,dc=com"));
+		try {
+			int imported = server.importFromLDIF(true,
+					new LDIFReader(new ByteArrayInputStream(ldif.getBytes(StandardCharsets.UTF_8))));
+			assertThat(imported).isEqualTo(generator.getEntryCount())
+				.isEqualTo(1 + (2 + 10 + 100) + (1 + 3 + 6 + 60) + (3 + 4));
+
+			assertThat(server.search("dc=example,dc=com", SearchScope.SUB, "(objectclass=person)").getEntryCount())
+				.isEqualTo(100 + 60);
+			Entry users = server.getEntry("cn=ROLE_USER,ou=Groups,dc=example,dc=com");
+			assertThat(users.getAttributeValues("member")).hasSize(60)
+				.contains("cn=User 7,ou=Unit 0,ou=Department 1,ou=Departments,dc=example,dc=com");
+			for (int group = 0; group < 4; group++) {
+				Entry entry = server.getEntry("cn=Group " + group + ",ou=Groups,dc=example,dc=com");
+				assertThat(entry.getAttributeValues("member")).hasSizeBetween(1, 25);
+			}
+		}
+		finally {
+			server.shutDown(true);
+		}
+	}
+
+	private static LdifGenerator generator(long seed) {
+		LdifGenerator generator = new LdifGenerator("dc=example,dc=com");
+		generator.setCountries(2);
+		generator.setCompaniesPerCountry(5);
+		generator.setPersonsPerCompany(10);
+		generator.setDepartments(3);
+		generator.setUnitsPerDepartment(2);
+		generator.setUsers(60);
+		generator.setGroups(4);
+		generator.setMaxGroupSize(25);
+		generator.setSeed(seed);
+		return generator;
+	}
+
+	private static String write(LdifGenerator generator) throws IOException {
+		StringWriter writer = new StringWriter();
+		generator.write(writer);
+		return writer.toString();
+	}
+
+}
@@ -16,6 +16,9 @@
 
 package org.springframework.ldap.samples.odm.domain;
 
+import java.util.Collection;
+import java.util.List;
+
 import javax.naming.Name;
 
 import org.apache.commons.lang.builder.EqualsBuilder;
@@ -23,11 +26,14 @@ import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
 
+import org.springframework.data.domain.DomainEvents;
 import org.springframework.ldap.odm.annotations.Attribute;
 import org.springframework.ldap.odm.annotations.DnAttribute;
 import org.springframework.ldap.odm.annotations.Entry;
 import org.springframework.ldap.odm.annotations.Id;
 import org.springframework.ldap.odm.annotations.Transient;
+import org.springframework.ldap.samples.utils.LdapEntryChangedEvent;
+import org.springframework.ldap.support.LdapNameBuilder;
 
 /**
  * Simple class representing a single person.
@@ -127,6 +133,23 @@ public class Person {
 		this.phone = phone;
 	}
 
+	/**
+	 * Published by the repository after this person has been saved or deleted. A person
+	 * that has not been read from the directory has no DN yet, so it is built from the DN
+	 * attributes in that case.
+	 * @return the event telling that the entry of this person has changed
+	 */
+	@DomainEvents
+	Collection<LdapEntryChangedEvent> changes() {
+		Name dn = (this.dn != null) ? this.dn
+				: LdapNameBuilder.newInstance()
+					.add("c", this.country)
+					.add("ou", this.company)
+					.add("cn", this.fullName)
+					.build();
+		return List.of(new LdapEntryChangedEvent(this, dn));
+	}
+
 	public boolean equals(Object obj) {
 		return EqualsBuilder.reflectionEquals(this, obj);
 	}
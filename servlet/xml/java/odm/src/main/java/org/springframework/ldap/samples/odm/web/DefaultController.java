@@ -16,23 +16,35 @@
 
 package org.springframework.ldap.samples.odm.web;
 
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 
 import javax.naming.Name;
 
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.apache.commons.lang.StringUtils;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.ldap.InvalidNameException;
+import org.springframework.ldap.NameNotFoundException;
 import org.springframework.ldap.core.DirContextOperations;
 import org.springframework.ldap.samples.odm.domain.Person;
 import org.springframework.ldap.samples.odm.repository.PersonRepository;
 import org.springframework.ldap.samples.utils.HtmlRowLdapTreeVisitor;
-import org.springframework.ldap.samples.utils.LdapTree;
+import org.springframework.ldap.samples.utils.LazyLdapTree;
+import org.springframework.ldap.samples.utils.LazyLdapTreeBuilder;
 import org.springframework.ldap.samples.utils.LdapTreeBuilder;
+import org.springframework.ldap.samples.utils.StreamingHtmlRowLdapTreeVisitor;
 import org.springframework.ldap.support.LdapUtils;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.ModelAndView;
 
 /**
@@ -45,10 +57,14 @@ public class DefaultController {
 
 	private final LdapTreeBuilder ldapTreeBuilder;
 
+	private final LazyLdapTreeBuilder lazyLdapTreeBuilder;
+
 	private final PersonRepository persons;
 
-	public DefaultController(LdapTreeBuilder ldapTreeBuilder, PersonRepository persons) {
+	public DefaultController(LdapTreeBuilder ldapTreeBuilder, LazyLdapTreeBuilder lazyLdapTreeBuilder,
+			PersonRepository persons) {
 		this.ldapTreeBuilder = ldapTreeBuilder;
+		this.lazyLdapTreeBuilder = lazyLdapTreeBuilder;
 		this.persons = persons;
 	}
 
@@ -58,12 +74,80 @@ public class DefaultController {
 
 	@RequestMapping("/showTree.do")
 	public ModelAndView showTree() {
-		LdapTree ldapTree = this.ldapTreeBuilder.getLdapTree(LdapUtils.emptyLdapName());
 		HtmlRowLdapTreeVisitor visitor = new PersonLinkHtmlRowLdapTreeVisitor();
-		ldapTree.traverse(visitor);
+		this.ldapTreeBuilder.getLdapTree(LdapUtils.emptyLdapName(), PersonLinkHtmlRowLdapTreeVisitor.ATTRIBUTES)
+			.traverse(visitor);
 		return new ModelAndView("showTree", "rows", visitor.getRows());
 	}
 
+	/**
+	 * Renders the same page as {@link #showTree()}, but writes each row to the response
+	 * as soon as it is read from the directory. Since no content length is known up
+	 * front, the container sends the page using chunked transfer encoding, and the
+	 * periodic flushes make the first rows arrive before the whole tree has been read.
+	 * @param request the current request
+	 * @param response the response to write the tree to
+	 * @throws ServletException if the page header or footer cannot be included
+	 * @throws IOException if writing to the response fails
+	 */
+	@RequestMapping("/streamTree.do")
+	public void streamTree(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		response.setContentType("text/html;charset=UTF-8");
+		request.getRequestDispatcher("/WEB-INF/jsp/treeHeader.jsp").include(request, response);
+		PrintWriter writer = response.getWriter();
+		writer.flush();
+		this.ldapTreeBuilder.traverse(LdapUtils.emptyLdapName(),
+				new StreamingHtmlRowLdapTreeVisitor(writer, new PersonLinkHtmlRowLdapTreeVisitor()),
+				PersonLinkHtmlRowLdapTreeVisitor.ATTRIBUTES);
+		request.getRequestDispatcher("/WEB-INF/jsp/treeFooter.jsp").include(request, response);
+	}
+
+	/**
+	 * Renders a single level of the tree: the given entry and one page of its direct
+	 * children, with links to the previous and next pages. Each child that is not a
+	 * person links back here to expand it, so only the entries that are actually shown
+	 * are read from the directory.
+	 * @param dn the entry to show the children of; the base of the context source if
+	 * empty
+	 * @param page the zero-based number of the page of children to show
+	 * @return the tree page
+	 */
+	@RequestMapping("/browseTree.do")
+	public ModelAndView browseTree(String dn, @RequestParam(defaultValue = "0") int page) {
+		if (page < 0) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The page must not be negative");
+		}
+		Name root;
+		try {
+			root = StringUtils.isEmpty(dn) ? LdapUtils.emptyLdapName() : LdapUtils.newLdapName(dn);
+		}
+		catch (InvalidNameException ex) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Not a valid DN", ex);
+		}
+		LazyLdapTree tree;
+		try {
+			tree = this.lazyLdapTreeBuilder.getLdapTree(root, 1, page, PersonLinkHtmlRowLdapTreeVisitor.ATTRIBUTES);
+		}
+		catch (NameNotFoundException ex) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No such entry", ex);
+		}
+		HtmlRowLdapTreeVisitor visitor = new BrowseLinkHtmlRowLdapTreeVisitor();
+		tree.traverse(visitor);
+		ModelAndView view = new ModelAndView("showTree", "rows", visitor.getRows());
+		if (tree.hasPreviousPage()) {
+			view.addObject("previousPage", browseLink(root, page - 1));
+		}
+		if (tree.hasNextPage()) {
+			view.addObject("nextPage", browseLink(root, page + 1));
+		}
+		return view;
+	}
+
+	private static String browseLink(Name dn, int page) {
+		return "browseTree.do?dn=" + URLEncoder.encode(dn.toString(), StandardCharsets.UTF_8) + "&page=" + page;
+	}
+
 	@RequestMapping("/addPerson.do")
 	public String addPerson() {
 		Person person = getPerson();
@@ -110,7 +194,12 @@ public class DefaultController {
 	 *
 	 * @author Mattias Hellborg Arthursson
 	 */
-	private static final class PersonLinkHtmlRowLdapTreeVisitor extends HtmlRowLdapTreeVisitor {
+	private static class PersonLinkHtmlRowLdapTreeVisitor extends HtmlRowLdapTreeVisitor {
+
+		/**
+		 * The only attribute, besides the DN, that this visitor reads.
+		 */
+		private static final String[] ATTRIBUTES = { "objectclass" };
 
 		@Override
 		protected String getLinkForNode(DirContextOperations node) {
@@ -128,7 +217,7 @@ public class DefaultController {
 			}
 		}
 
-		private String encodeValue(String value) {
+		protected String encodeValue(String value) {
 			return URLEncoder.encode(value, StandardCharsets.UTF_8);
 		}
 
@@ -143,4 +232,20 @@ public class DefaultController {
 
 	}
 
+	/**
+	 * Links the rows that are not persons to the next level of the tree.
+	 */
+	private static final class BrowseLinkHtmlRowLdapTreeVisitor extends PersonLinkHtmlRowLdapTreeVisitor {
+
+		@Override
+		protected String getLinkForNode(DirContextOperations node) {
+			String link = super.getLinkForNode(node);
+			if (!"#".equals(link)) {
+				return link;
+			}
+			return "browseTree.do?dn=" + encodeValue(node.getDn().toString());
+		}
+
+	}
+
 }
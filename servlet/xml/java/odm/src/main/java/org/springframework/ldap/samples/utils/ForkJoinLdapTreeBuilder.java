@@ -0,0 +1,123 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.utils;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+
+import javax.naming.Name;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.ldap.core.LdapClient;
+import org.springframework.util.Assert;
+
+public class ForkJoinLdapTreeBuilder extends LdapTreeBuilder implements DisposableBean {
+
+	private static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+	private final ForkJoinPool pool;
+
+	private final Semaphore permits;
+
+	public ForkJoinLdapTreeBuilder(LdapClient ldap) {
+		this(ldap, DEFAULT_MAX_CONCURRENCY);
+	}
+
+	/**
+	 * Create a builder that fetches sibling subtrees in parallel.
+	 * @param ldap the client to use
+	 * @param maxConcurrency the maximum number of child searches in flight at any time;
+	 * keep this below the size of the connection pool of the context source
+	 */
+	public ForkJoinLdapTreeBuilder(LdapClient ldap, int maxConcurrency) {
+		super(ldap);
+		Assert.isTrue(maxConcurrency > 0, "maxConcurrency must be greater than zero");
+		this.pool = new ForkJoinPool(maxConcurrency, this::newWorkerThread, null, false);
+		// The pool may add compensating threads while tasks wait on each other, so the
+		// number of concurrent LDAP operations is capped separately.
+		this.permits = new Semaphore(maxConcurrency);
+	}
+
+	/**
+	 * Walks the tree like {@link LdapTreeBuilder} does, but the children of each node are
+	 * fetched as separate fork-join tasks. Children are still added in the order the
+	 * server returns them, so the resulting {@link LdapTree} is the same as the
+	 * sequential one.
+	 * @param root the DN of the root entry, relative to the base of the context source
+	 * @param attributes the attributes that the nodes need; all attributes are returned
+	 * if none are given
+	 * @return the tree below, and including, the root entry
+	 */
+	@Override
+	public LdapTree getLdapTree(Name root, String... attributes) {
+		return this.pool.invoke(new SubTreeTask(findNode(root, attributes), attributes));
+	}
+
+	@Override
+	public void destroy() {
+		this.pool.shutdown();
+	}
+
+	private ForkJoinWorkerThread newWorkerThread(ForkJoinPool pool) {
+		ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+		// JNDI resolves the DirObjectFactory through the context class loader, which
+		// fork-join workers do not inherit from the thread that created the pool.
+		thread.setContextClassLoader(getClass().getClassLoader());
+		return thread;
+	}
+
+	private List<DirContextOperations> findChildrenWithPermit(Name parentDn, String[] attributes) {
+		this.permits.acquireUninterruptibly();
+		try {
+			return findChildren(parentDn, attributes);
+		}
+		finally {
+			this.permits.release();
+		}
+	}
+
+	private final class SubTreeTask extends RecursiveTask<LdapTree> {
+
+		private final DirContextOperations node;
+
+		private final String[] attributes;
+
+		private SubTreeTask(DirContextOperations node, String[] attributes) {
+			this.node = node;
+			this.attributes = attributes;
+		}
+
+		@Override
+		protected LdapTree compute() {
+			LdapTree ldapTree = new LdapTree(this.node);
+			List<SubTreeTask> subTasks = findChildrenWithPermit(this.node.getDn(), this.attributes).stream()
+				.map((child) -> new SubTreeTask(child, this.attributes))
+				.toList();
+			invokeAll(subTasks);
+			for (SubTreeTask subTask : subTasks) {
+				ldapTree.addSubTree(subTask.join());
+			}
+			return ldapTree;
+		}
+
+	}
+
+}
@@ -27,6 +27,11 @@ public class HtmlRowLdapTreeVisitor implements LdapTreeVisitor {
 
 	public void visit(DirContextOperations node, int currentDepth) {
 		StringBuilder sb = new StringBuilder();
+		appendRow(sb, node, currentDepth);
+		this.rows.add(sb.toString());
+	}
+
+	protected void appendRow(StringBuilder sb, DirContextOperations node, int currentDepth) {
 		for (int i = 0; i < currentDepth; i++) {
 			sb.append("&nbsp;&nbsp;&nbsp;&nbsp;");
 		}
@@ -37,8 +42,6 @@ public class HtmlRowLdapTreeVisitor implements LdapTreeVisitor {
 			.append(node.getDn())
 			.append("</a>")
 			.append("<br>\n");
-
-		this.rows.add(sb.toString());
 	}
 
 	protected String getLinkForNode(DirContextOperations node) {
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.utils;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.naming.Name;
+import javax.naming.directory.SearchControls;
+
+import org.springframework.ldap.control.PagedResultsDirContextProcessor;
+import org.springframework.ldap.core.ContextMapper;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.ldap.core.LdapTemplate;
+import org.springframework.ldap.core.support.SingleContextSource;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+public class LazyLdapTreeBuilder {
+
+	private static final String FILTER = "(objectclass=*)";
+
+	private static final ContextMapper<DirContextOperations> NODE_MAPPER = (ctx) -> (DirContextOperations) ctx;
+
+	private final ContextSource contextSource;
+
+	private final LdapTemplate ldapTemplate;
+
+	private final int pageSize;
+
+	/**
+	 * Create a builder that reads the children of a node in pages of the given size,
+	 * using the Simple Paged Results control, so that nodes with more children than the
+	 * server size limit can still be browsed.
+	 * @param contextSource the context source to read the tree from
+	 * @param pageSize the number of children to request per page
+	 */
+	public LazyLdapTreeBuilder(ContextSource contextSource, int pageSize) {
+		Assert.isTrue(pageSize > 0, "pageSize must be greater than zero");
+		this.contextSource = contextSource;
+		this.ldapTemplate = new LdapTemplate(contextSource);
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Reads the root entry only; the children of each node are read when
+	 * {@link LazyLdapTree#getSubContexts()} is first called, down to the given depth.
+	 * @param root the DN of the root entry, relative to the base of the context source
+	 * @param maxDepth the depth below the root at which nodes stop reading their
+	 * children; {@code 1} reads the root and its direct children only
+	 * @param attributes the attributes that the nodes need; all attributes are returned
+	 * if none are given
+	 * @return the tree below, and including, the root entry
+	 */
+	public LazyLdapTree getLdapTree(Name root, int maxDepth, String... attributes) {
+		return getLdapTree(root, maxDepth, 0, attributes);
+	}
+
+	/**
+	 * Like {@link #getLdapTree(Name, int, String...)}, but the root holds the given page
+	 * of its children rather than the first one. Every node holds a single page of its
+	 * children; use {@link LazyLdapTree#hasNextPage()} to tell whether there are more.
+	 * @param root the DN of the root entry, relative to the base of the context source
+	 * @param maxDepth the depth below the root at which nodes stop reading their
+	 * children; {@code 1} reads the root and its direct children only
+	 * @param page the zero-based number of the page of children of the root
+	 * @param attributes the attributes that the nodes need; all attributes are returned
+	 * if none are given
+	 * @return the tree below, and including, the root entry
+	 */
+	public LazyLdapTree getLdapTree(Name root, int maxDepth, int page, String... attributes) {
+		Assert.isTrue(maxDepth >= 0, "maxDepth must not be negative");
+		Assert.isTrue(page >= 0, "page must not be negative");
+		return new LazyLdapTree(findNode(root, attributes), this, maxDepth, page, attributes);
+	}
+
+	protected DirContextOperations findNode(Name dn, String... attributes) {
+		if (ObjectUtils.isEmpty(attributes)) {
+			return this.ldapTemplate.lookupContext(dn);
+		}
+		return this.ldapTemplate.lookup(dn, attributes, NODE_MAPPER);
+	}
+
+	/**
+	 * Reads one page of the children of the given node. The paged results cookie is only
+	 * valid on the connection that the first page was read on, so it cannot be handed out
+	 * to be used in a later request. Instead, the pages before the requested one are read
+	 * and dropped on a single connection, and the server is told to abandon the search as
+	 * soon as the requested page is complete.
+	 * @param parentDn the DN of the node to read the children of
+	 * @param page the zero-based number of the page to read
+	 * @param attributes the attributes to return; all attributes are returned if none are
+	 * given
+	 * @return the children on the page, in the order returned by the server
+	 */
+	protected ChildPage findChildren(Name parentDn, int page, String... attributes) {
+		SearchControls controls = new SearchControls();
+		controls.setSearchScope(SearchControls.ONELEVEL_SCOPE);
+		controls.setReturningAttributes(ObjectUtils.isEmpty(attributes) ? null : attributes);
+		return SingleContextSource.doWithSingleContext(this.contextSource, (operations) -> {
+			PagedResultsDirContextProcessor processor = new PagedResultsDirContextProcessor(this.pageSize);
+			List<DirContextOperations> children = operations.search(parentDn, FILTER, controls, NODE_MAPPER, processor);
+			for (int current = 0; current < page; current++) {
+				if (!processor.hasMore()) {
+					return new ChildPage(Collections.emptyList(), false);
+				}
+				children = operations.search(parentDn, FILTER, controls, NODE_MAPPER, processor);
+			}
+			if (!processor.hasMore()) {
+				return new ChildPage(children, false);
+			}
+			// A page size of zero with the last cookie releases the rest of the results.
+			operations.search(parentDn, FILTER, controls, NODE_MAPPER,
+					new PagedResultsDirContextProcessor(0, processor.getCookie()));
+			return new ChildPage(children, true);
+		});
+	}
+
+	/**
+	 * A page of the children of a node.
+	 *
+	 * @param children the children on the page
+	 * @param hasMore whether there are more children after this page
+	 */
+	public record ChildPage(List<DirContextOperations> children, boolean hasMore) {
+
+	}
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.utils;
+
+import javax.naming.Name;
+
+import org.springframework.context.ApplicationEvent;
+
+public class LdapEntryChangedEvent extends ApplicationEvent {
+
+	private final Name dn;
+
+	/**
+	 * Create an event telling that an entry has been created, updated or deleted, so that
+	 * copies of the directory, like the trees kept by {@link CachingLdapTreeBuilder}, can
+	 * be refreshed.
+	 * @param source the object that changed the entry
+	 * @param dn the DN of the entry, relative to the base of the context source
+	 */
+	public LdapEntryChangedEvent(Object source, Name dn) {
+		super(source);
+		this.dn = dn;
+	}
+
+	public Name getDn() {
+		return this.dn;
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.utils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.util.Assert;
+
+public class StreamingHtmlRowLdapTreeVisitor implements LdapTreeVisitor {
+
+	private static final int DEFAULT_FLUSH_INTERVAL = 100;
+
+	private final Writer writer;
+
+	private final HtmlRowLdapTreeVisitor rowFormat;
+
+	private final int flushInterval;
+
+	private final StringBuilder row = new StringBuilder();
+
+	private int rowCount;
+
+	public StreamingHtmlRowLdapTreeVisitor(Writer writer, HtmlRowLdapTreeVisitor rowFormat) {
+		this(writer, rowFormat, DEFAULT_FLUSH_INTERVAL);
+	}
+
+	/**
+	 * Create a visitor that writes each row straight to the given writer instead of
+	 * collecting them, flushing every {@code flushInterval} rows so that the client
+	 * receives the tree while it is still being read.
+	 * @param writer the writer to write the rows to, typically the response writer
+	 * @param rowFormat the visitor whose row format, including links, to use
+	 * @param flushInterval the number of rows to write between flushes
+	 */
+	public StreamingHtmlRowLdapTreeVisitor(Writer writer, HtmlRowLdapTreeVisitor rowFormat, int flushInterval) {
+		Assert.isTrue(flushInterval > 0, "flushInterval must be greater than zero");
+		this.writer = writer;
+		this.rowFormat = rowFormat;
+		this.flushInterval = flushInterval;
+	}
+
+	@Override
+	public void visit(DirContextOperations node, int currentDepth) {
+		this.row.setLength(0);
+		this.rowFormat.appendRow(this.row, node, currentDepth);
+		try {
+			this.writer.append(this.row);
+			this.rowCount++;
+			if (this.rowCount % this.flushInterval == 0) {
+				flush();
+			}
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	// A PrintWriter, such as the response writer, swallows IOExceptions; check for them
+	// so that a client that went away stops the traversal.
+	private void flush() throws IOException {
+		this.writer.flush();
+		if (this.writer instanceof PrintWriter printWriter && printWriter.checkError()) {
+			throw new IOException("Could not write the rows, the client may have gone away");
+		}
+	}
+
+	public int getRowCount() {
+		return this.rowCount;
+	}
+
+}
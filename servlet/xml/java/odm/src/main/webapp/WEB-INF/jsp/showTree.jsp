@@ -1,17 +1,10 @@
 <%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core"%>
-<html>
-<body>
-<h2>Operations</h2>
-<h3>Clicking a link below performs the described operation which will be reflected in the LDAP tree below</h3>
-<a href="addPerson.do">Add new test person 'John Doe'</a> (only works once)<br>
-<a href="updatePhoneNumber.do">Add a '0' to the phone number of test person</a> (only works if the person has been created)<br>
-<a href="removePerson.do">Remove test person</a><br>
-<p>
-<h2>Tree contents</h2>
-<h3>Click a person row to see the attribute values (country and company rows do not have additional info)</h3>
+<%@ include file="treeHeader.jsp" %>
+<a href="streamTree.do">Stream the tree instead</a> (renders while the directory is being read; use this for large directories)<br>
+<a href="browseTree.do">Browse the tree one level at a time</a> (only reads the entries that are shown)<br>
 <c:forEach var="row" items="${rows}">
 			${row}
 </c:forEach>
-</p>
-</body>
-</html>
+<c:if test="${not empty previousPage}"><a href="${previousPage}">Previous page</a></c:if>
+<c:if test="${not empty nextPage}"><a href="${nextPage}">Next page</a></c:if>
+<%@ include file="treeFooter.jsp" %>
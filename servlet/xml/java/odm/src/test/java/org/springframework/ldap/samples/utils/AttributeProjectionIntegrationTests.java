@@ -0,0 +1,122 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.naming.ldap.LdapName;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.ldap.core.DirContextAdapter;
+import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.ldap.core.LdapClient;
+import org.springframework.ldap.support.LdapNameBuilder;
+import org.springframework.ldap.support.LdapUtils;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that building a tree with an attribute projection returns the same nodes as
+ * building it without one, minus the attributes that were not asked for.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration("/applicationContext.xml")
+public class AttributeProjectionIntegrationTests {
+
+	private static final LdapName ROOT = LdapUtils.newLdapName("c=Projection");
+
+	private static final int COMPANIES = 2;
+
+	private static final int PERSONS_PER_COMPANY = 3;
+
+	@Autowired
+	private LdapClient ldap;
+
+	@BeforeEach
+	void createEntries() {
+		DirContextAdapter country = new DirContextAdapter(ROOT);
+		country.setAttributeValues("objectclass", new String[] { "top", "country" });
+		country.setAttributeValue("c", "Projection");
+		this.ldap.bind(ROOT).object(country).execute();
+		for (int i = 0; i < COMPANIES; i++) {
+			LdapName companyDn = LdapNameBuilder.newInstance(ROOT).add("ou", "company" + i).build();
+			DirContextAdapter company = new DirContextAdapter(companyDn);
+			company.setAttributeValues("objectclass", new String[] { "top", "organizationalUnit" });
+			company.setAttributeValue("ou", "company" + i);
+			this.ldap.bind(companyDn).object(company).execute();
+			for (int j = 0; j < PERSONS_PER_COMPANY; j++) {
+				String cn = "Person " + i + "-" + j;
+				LdapName personDn = LdapNameBuilder.newInstance(companyDn).add("cn", cn).build();
+				DirContextAdapter person = new DirContextAdapter(personDn);
+				person.setAttributeValues("objectclass",
+						new String[] { "top", "person", "organizationalPerson", "inetOrgPerson" });
+				person.setAttributeValue("cn", cn);
+				person.setAttributeValue("sn", "Person");
+				person.setAttributeValue("jpegPhoto", new byte[] { (byte) i, (byte) j });
+				this.ldap.bind(personDn).object(person).execute();
+			}
+		}
+	}
+
+	@AfterEach
+	void removeEntries() {
+		this.ldap.unbind(ROOT).recursive(true).execute();
+	}
+
+	@Test
+	void getLdapTreeWhenProjectedThenOnlyProjectedAttributesAreReturned() {
+		LdapTreeBuilder builder = new SubtreeSearchLdapTreeBuilder(this.ldap);
+
+		List<DirContextOperations> full = nodes(builder.getLdapTree(ROOT));
+		List<DirContextOperations> projected = nodes(builder.getLdapTree(ROOT, "objectclass"));
+
+		assertThat(projected).hasSize(1 + COMPANIES * (1 + PERSONS_PER_COMPANY));
+		assertThat(projected).extracting(DirContextOperations::getDn)
+			.containsExactlyElementsOf(full.stream().map(DirContextOperations::getDn).toList());
+		assertThat(full).filteredOn((node) -> node.attributeExists("cn"))
+			.hasSize(COMPANIES * PERSONS_PER_COMPANY)
+			.allMatch((node) -> node.attributeExists("jpegPhoto"));
+		assertThat(projected).allMatch((node) -> node.attributeExists("objectclass"))
+			.noneMatch((node) -> node.attributeExists("jpegPhoto") || node.attributeExists("cn"));
+	}
+
+	@Test
+	void getLdapTreeWhenNotProjectedThenMatchesSubtreeSearch() {
+		List<DirContextOperations> oneLevel = nodes(new LdapTreeBuilder(this.ldap).getLdapTree(ROOT));
+		List<DirContextOperations> subtree = nodes(new SubtreeSearchLdapTreeBuilder(this.ldap).getLdapTree(ROOT));
+
+		assertThat(oneLevel).extracting(DirContextOperations::getDn)
+			.containsExactlyElementsOf(subtree.stream().map(DirContextOperations::getDn).toList());
+		assertThat(oneLevel).filteredOn((node) -> node.attributeExists("cn"))
+			.allMatch((node) -> node.attributeExists("jpegPhoto"));
+	}
+
+	private static List<DirContextOperations> nodes(LdapTree tree) {
+		List<DirContextOperations> nodes = new ArrayList<>();
+		tree.traverse((node, depth) -> nodes.add(node));
+		return nodes;
+	}
+
+}
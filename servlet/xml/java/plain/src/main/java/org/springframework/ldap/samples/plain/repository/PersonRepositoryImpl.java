@@ -21,6 +21,8 @@ import java.util.List;
 import javax.naming.Name;
 import javax.naming.ldap.LdapName;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.ldap.core.AttributesMapper;
 import org.springframework.ldap.core.ContextMapper;
 import org.springframework.ldap.core.DirContextAdapter;
@@ -30,6 +32,7 @@ import org.springframework.ldap.core.support.AbstractContextMapper;
 import org.springframework.ldap.query.LdapQuery;
 import org.springframework.ldap.query.LdapQueryBuilder;
 import org.springframework.ldap.samples.plain.domain.Person;
+import org.springframework.ldap.samples.utils.LdapEntryChangedEvent;
 import org.springframework.ldap.support.LdapNameBuilder;
 import org.springframework.ldap.support.LdapUtils;
 
@@ -48,20 +51,28 @@ import org.springframework.ldap.support.LdapUtils;
  * @author Mattias Hellborg Arthursson
  * @author Ulrik Sandberg
  */
-public class PersonRepositoryImpl implements PersonRepository {
+public class PersonRepositoryImpl implements PersonRepository, ApplicationEventPublisherAware {
 
 	private final LdapClient ldap;
 
+	private ApplicationEventPublisher eventPublisher;
+
 	public PersonRepositoryImpl(LdapClient ldap) {
 		this.ldap = ldap;
 	}
 
+	@Override
+	public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+		this.eventPublisher = eventPublisher;
+	}
+
 	@Override
 	public void create(Person person) {
 		Name dn = buildDn(person);
 		DirContextOperations context = new DirContextAdapter(dn);
 		mapToContext(person, context);
 		this.ldap.bind(dn).object(context).execute();
+		publishChange(dn);
 	}
 
 	@Override
@@ -70,11 +81,14 @@ public class PersonRepositoryImpl implements PersonRepository {
 		DirContextAdapter context = this.ldap.search().name(dn).toEntry();
 		mapToContext(person, context);
 		this.ldap.modify(dn).attributes(context.getModificationItems()).execute();
+		publishChange(dn);
 	}
 
 	@Override
 	public void delete(Person person) {
-		this.ldap.unbind(buildDn(person)).execute();
+		Name dn = buildDn(person);
+		this.ldap.unbind(dn).execute();
+		publishChange(dn);
 	}
 
 	@Override
@@ -98,6 +112,16 @@ public class PersonRepositoryImpl implements PersonRepository {
 		return this.ldap.search().name(dn).toObject(PERSON_CONTEXT_MAPPER);
 	}
 
+	/**
+	 * Tells the listeners, like the cached LDAP tree, that the entry has changed.
+	 * @param dn the DN of the created, updated or deleted entry
+	 */
+	private void publishChange(Name dn) {
+		if (this.eventPublisher != null) {
+			this.eventPublisher.publishEvent(new LdapEntryChangedEvent(this, dn));
+		}
+	}
+
 	private LdapName buildDn(Person person) {
 		return buildDn(person.getCountry(), person.getCompany(), person.getFullName());
 	}
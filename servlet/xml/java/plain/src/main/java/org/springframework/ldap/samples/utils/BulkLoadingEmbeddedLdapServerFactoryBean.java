@@ -0,0 +1,170 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.utils;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import com.unboundid.ldap.sdk.DN;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.RDN;
+import com.unboundid.ldif.LDIFReader;
+import com.unboundid.ldif.LDIFReaderEntryTranslator;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.io.Resource;
+import org.springframework.ldap.test.unboundid.EmbeddedLdapServer;
+import org.springframework.ldap.test.unboundid.EmbeddedLdapServerFactoryBean;
+import org.springframework.util.Assert;
+
+public class BulkLoadingEmbeddedLdapServerFactoryBean extends EmbeddedLdapServerFactoryBean {
+
+	private static final Log logger = LogFactory.getLog(BulkLoadingEmbeddedLdapServerFactoryBean.class);
+
+	private static final int PARSE_THREADS = 4;
+
+	private String partitionName;
+
+	private String partitionSuffix;
+
+	private int port;
+
+	private Resource resource;
+
+	private String defaultBase;
+
+	@Override
+	public void setPartitionName(String partitionName) {
+		super.setPartitionName(partitionName);
+		this.partitionName = partitionName;
+	}
+
+	@Override
+	public void setPartitionSuffix(String partitionSuffix) {
+		super.setPartitionSuffix(partitionSuffix);
+		this.partitionSuffix = partitionSuffix;
+	}
+
+	@Override
+	public void setPort(int port) {
+		super.setPort(port);
+		this.port = port;
+	}
+
+	/**
+	 * The LDIF file to import before the server starts listening, instead of binding each
+	 * entry over LDAP like {@code LdifPopulator} does.
+	 * @param resource the entries to import, not including the partition entry
+	 */
+	public void setResource(Resource resource) {
+		this.resource = resource;
+	}
+
+	/**
+	 * The base that the DNs in the file are written for; they are moved to the partition
+	 * suffix while they are read.
+	 * @param defaultBase the base of the DNs in the file
+	 */
+	public void setDefaultBase(String defaultBase) {
+		this.defaultBase = defaultBase;
+	}
+
+	/**
+	 * Creates the server the same way {@link EmbeddedLdapServerFactoryBean} does, but
+	 * imports the LDIF file straight into its in-memory backend before it starts
+	 * listening. The factory bean gives no access to the backend, which is why the server
+	 * is created here.
+	 */
+	@Override
+	protected EmbeddedLdapServer createInstance() throws Exception {
+		InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig(this.partitionSuffix);
+		config.addAdditionalBindCredentials("uid=admin,ou=system", "secret");
+		config.setListenerConfigs(InMemoryListenerConfig.createLDAPConfig("LDAP", this.port));
+		config.setEnforceSingleStructuralObjectClass(false);
+		config.setEnforceAttributeSyntaxCompliance(true);
+		InMemoryDirectoryServer directoryServer = new InMemoryDirectoryServer(config);
+
+		Entry partition = new Entry(this.partitionSuffix);
+		partition.addAttribute("objectClass", "top", "domain", "extensibleObject");
+		partition.addAttribute("dc", this.partitionName);
+		directoryServer.add(partition);
+		if (this.resource != null) {
+			importLdif(directoryServer);
+		}
+
+		EmbeddedLdapServer server = new EmbeddedLdapServer(directoryServer);
+		server.start();
+		return server;
+	}
+
+	private void importLdif(InMemoryDirectoryServer directoryServer) throws Exception {
+		long start = System.nanoTime();
+		int entries;
+		try (InputStream in = this.resource.getInputStream();
+				LDIFReader reader = new LDIFReader(in, PARSE_THREADS, rebase())) {
+			entries = directoryServer.importFromLDIF(false, reader);
+		}
+		long elapsed = System.nanoTime() - start;
+		if (logger.isInfoEnabled()) {
+			logger.info(String.format("Imported %d entries from %s in %d ms (%.0f entries/s)", entries,
+					this.resource.getDescription(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+					entries / (Math.max(elapsed, 1) / 1e9)));
+		}
+	}
+
+	private LDIFReaderEntryTranslator rebase() throws LDAPException {
+		if (this.defaultBase == null) {
+			return null;
+		}
+		DN from = new DN(this.defaultBase);
+		DN to = new DN(this.partitionSuffix);
+		if (from.equals(to)) {
+			return null;
+		}
+		return (entry, firstLineNumber) -> {
+			DN dn;
+			try {
+				dn = entry.getParsedDN();
+			}
+			catch (LDAPException ex) {
+				return entry;
+			}
+			if (dn.isDescendantOf(from, true)) {
+				RDN[] rdns = dn.getRDNs();
+				RDN[] relative = Arrays.copyOf(rdns, rdns.length - from.getRDNs().length);
+				RDN[] rebased = Arrays.copyOf(relative, relative.length + to.getRDNs().length);
+				System.arraycopy(to.getRDNs(), 0, rebased, relative.length, to.getRDNs().length);
+				entry.setDN(new DN(rebased));
+			}
+			return entry;
+		};
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		Assert.hasText(this.partitionSuffix, "partitionSuffix is required");
+		Assert.hasText(this.partitionName, "partitionName is required");
+		super.afterPropertiesSet();
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.Name;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.ldap.NameNotFoundException;
+
+public class CachingLdapTreeBuilder extends LdapTreeBuilder implements ApplicationListener<LdapEntryChangedEvent> {
+
+	private final LdapTreeBuilder delegate;
+
+	private final Map<SnapshotKey, LdapTree> snapshots = new ConcurrentHashMap<>();
+
+	private final AtomicLong generation = new AtomicLong();
+
+	/**
+	 * Create a builder that keeps the trees built by the given builder, until an entry in
+	 * them changes. Only the trees returned by {@code getLdapTree} are cached;
+	 * {@code traverse} still streams the entries from the directory.
+	 * @param delegate the builder to read the trees with
+	 */
+	public CachingLdapTreeBuilder(LdapTreeBuilder delegate) {
+		super(delegate.getLdapClient());
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Returns the snapshot of the tree below the root, reading it from the directory only
+	 * if there is none yet. The snapshot cannot be modified, since it is shared by all
+	 * callers. The directory is read outside of any lock, and a snapshot is only kept if
+	 * no entry was invalidated while it was being read.
+	 * @param root the DN of the root entry, relative to the base of the context source
+	 * @param attributes the attributes that the nodes need; all attributes are returned
+	 * if none are given
+	 * @return the tree below, and including, the root entry
+	 */
+	@Override
+	public LdapTree getLdapTree(Name root, String... attributes) {
+		SnapshotKey key = new SnapshotKey(root, attributes);
+		LdapTree cached = this.snapshots.get(key);
+		if (cached != null) {
+			return cached;
+		}
+		long started = this.generation.get();
+		LdapTree loaded = snapshot(this.delegate.getLdapTree(root, attributes));
+		LdapTree existing = this.snapshots.putIfAbsent(key, loaded);
+		if (existing != null) {
+			return existing;
+		}
+		// invalidate() bumps the generation before it looks at the snapshots, so either
+		// it sees this snapshot or this check sees the new generation.
+		if (this.generation.get() != started) {
+			this.snapshots.remove(key, loaded);
+		}
+		return loaded;
+	}
+
+	/**
+	 * Brings the snapshots containing the given entry up to date. Only the subtree of the
+	 * entry is read again; the rest of the snapshot is shared with the previous one, so
+	 * readers holding on to that one are not affected. Created entries are added after
+	 * their siblings, whatever order the server would return them in. Snapshots that are
+	 * being read while this runs are not kept.
+	 * @param dn the DN of the created, updated or deleted entry, relative to the base of
+	 * the context source
+	 */
+	public void invalidate(Name dn) {
+		this.generation.incrementAndGet();
+		for (Map.Entry<SnapshotKey, LdapTree> snapshot : this.snapshots.entrySet()) {
+			SnapshotKey key = snapshot.getKey();
+			LdapTree tree = snapshot.getValue();
+			if (!dn.startsWith(key.root) || dn.size() == key.root.size()) {
+				if (key.root.startsWith(dn)) {
+					this.snapshots.remove(key);
+				}
+				continue;
+			}
+			LdapTree updated = replace(tree, dn, key.attributes);
+			// Another invalidation got there first; its copy may lack this change.
+			if (!this.snapshots.replace(key, tree, updated)) {
+				this.snapshots.remove(key);
+			}
+		}
+	}
+
+	@Override
+	public void onApplicationEvent(LdapEntryChangedEvent event) {
+		invalidate(event.getDn());
+	}
+
+	private LdapTree replace(LdapTree tree, Name dn, String[] attributes) {
+		Name childDn = dn.getPrefix(tree.getNode().getDn().size() + 1);
+		List<LdapTree> children = new ArrayList<>(tree.getSubContexts());
+		int index = indexOf(children, childDn);
+		if (index >= 0 && childDn.size() < dn.size()) {
+			children.set(index, replace(children.get(index), dn, attributes));
+		}
+		else {
+			LdapTree child = findSnapshot(childDn, attributes);
+			if (index < 0 && child != null) {
+				children.add(child);
+			}
+			else if (index >= 0 && child != null) {
+				children.set(index, child);
+			}
+			else if (index >= 0) {
+				children.remove(index);
+			}
+		}
+		LdapTree copy = new LdapTree(tree.getNode());
+		copy.setSubContexts(List.copyOf(children));
+		return copy;
+	}
+
+	private LdapTree findSnapshot(Name dn, String[] attributes) {
+		try {
+			return snapshot(this.delegate.getLdapTree(dn, attributes));
+		}
+		catch (NameNotFoundException ex) {
+			return null;
+		}
+	}
+
+	private static int indexOf(List<LdapTree> trees, Name dn) {
+		for (int i = 0; i < trees.size(); i++) {
+			if (trees.get(i).getNode().getDn().equals(dn)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static LdapTree snapshot(LdapTree tree) {
+		LdapTree copy = new LdapTree(tree.getNode());
+		copy.setSubContexts(tree.getSubContexts().stream().map(CachingLdapTreeBuilder::snapshot).toList());
+		return copy;
+	}
+
+	private static final class SnapshotKey {
+
+		private final Name root;
+
+		private final String[] attributes;
+
+		private SnapshotKey(Name root, String[] attributes) {
+			this.root = root;
+			this.attributes = attributes.clone();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof SnapshotKey other)) {
+				return false;
+			}
+			return this.root.equals(other.root) && Arrays.equals(this.attributes, other.attributes);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * this.root.hashCode() + Arrays.hashCode(this.attributes);
+		}
+
+	}
+
+}
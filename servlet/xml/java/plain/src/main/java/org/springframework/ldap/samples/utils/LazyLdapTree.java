@@ -0,0 +1,107 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.ldap.core.DirContextOperations;
+
+public class LazyLdapTree extends LdapTree {
+
+	private final LazyLdapTreeBuilder builder;
+
+	private final int remainingDepth;
+
+	private final int page;
+
+	private final String[] attributes;
+
+	private boolean loaded;
+
+	private boolean nextPage;
+
+	LazyLdapTree(DirContextOperations node, LazyLdapTreeBuilder builder, int remainingDepth, int page,
+			String[] attributes) {
+		super(node);
+		this.builder = builder;
+		this.remainingDepth = remainingDepth;
+		this.page = page;
+		this.attributes = attributes;
+	}
+
+	/**
+	 * Reads one page of the children of this node from the directory the first time it is
+	 * called. Nodes at the maximum depth of the tree have no children; use
+	 * {@link #isDepthLimitReached()} to tell those apart from leaves, and build a new
+	 * tree from the node to expand it.
+	 * @return the children of this node
+	 */
+	@Override
+	public List<LdapTree> getSubContexts() {
+		if (!this.loaded) {
+			List<LdapTree> subContexts = new ArrayList<>();
+			if (this.remainingDepth > 0) {
+				LazyLdapTreeBuilder.ChildPage children = this.builder.findChildren(getNode().getDn(), this.page,
+						this.attributes);
+				for (DirContextOperations child : children.children()) {
+					subContexts.add(new LazyLdapTree(child, this.builder, this.remainingDepth - 1, 0, this.attributes));
+				}
+				this.nextPage = children.hasMore();
+			}
+			setSubContexts(subContexts);
+		}
+		return super.getSubContexts();
+	}
+
+	@Override
+	public void setSubContexts(List<LdapTree> subContexts) {
+		super.setSubContexts(subContexts);
+		this.loaded = true;
+	}
+
+	public boolean isLoaded() {
+		return this.loaded;
+	}
+
+	/**
+	 * Return the zero-based number of the page of children that this node holds.
+	 * @return the page number
+	 */
+	public int getPage() {
+		return this.page;
+	}
+
+	public boolean hasPreviousPage() {
+		return this.page > 0;
+	}
+
+	/**
+	 * Tells whether the node has more children than the ones on its page, reading the
+	 * page first if needed.
+	 * @return whether there is a next page of children
+	 */
+	public boolean hasNextPage() {
+		getSubContexts();
+		return this.nextPage;
+	}
+
+	public boolean isDepthLimitReached() {
+		return this.remainingDepth == 0;
+	}
+
+}
@@ -44,7 +44,7 @@ public class LdapTree {
 	}
 
 	public void addSubTree(LdapTree ldapTree) {
-		this.subContexts.add(ldapTree);
+		getSubContexts().add(ldapTree);
 	}
 
 	public void traverse(LdapTreeVisitor visitor) {
@@ -53,7 +53,7 @@ public class LdapTree {
 
 	private void traverse(LdapTreeVisitor visitor, int currentDepth) {
 		visitor.visit(this.node, currentDepth);
-		for (LdapTree subContext : this.subContexts) {
+		for (LdapTree subContext : getSubContexts()) {
 			subContext.traverse(visitor, currentDepth + 1);
 		}
 	}
@@ -16,35 +16,103 @@
 
 package org.springframework.ldap.samples.utils;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 import javax.naming.Name;
 
 import org.springframework.ldap.core.ContextMapper;
 import org.springframework.ldap.core.DirContextOperations;
 import org.springframework.ldap.core.LdapClient;
-import org.springframework.ldap.support.LdapUtils;
+import org.springframework.ldap.query.LdapQuery;
+import org.springframework.ldap.query.LdapQueryBuilder;
+import org.springframework.ldap.query.SearchScope;
+import org.springframework.util.ObjectUtils;
 
 public class LdapTreeBuilder {
 
+	private static final ContextMapper<DirContextOperations> NODE_MAPPER = (ctx) -> (DirContextOperations) ctx;
+
 	private final LdapClient ldap;
 
 	public LdapTreeBuilder(LdapClient ldap) {
 		this.ldap = ldap;
 	}
 
+	protected final LdapClient getLdapClient() {
+		return this.ldap;
+	}
+
 	public LdapTree getLdapTree(Name root) {
-		DirContextOperations context = this.ldap.search().name(root).toEntry();
-		return getLdapTree(context);
-	}
-
-	private LdapTree getLdapTree(final DirContextOperations rootContext) {
-		final LdapTree ldapTree = new LdapTree(rootContext);
-		this.ldap.listBindings(rootContext.getDn()).toList((ContextMapper<Object>) (ctx) -> {
-			Name dn = ((DirContextOperations) ctx).getDn();
-			dn = LdapUtils.prepend(dn, rootContext.getDn());
-			ldapTree.addSubTree(getLdapTree(dn));
-			return null;
-		});
+		return getLdapTree(root, new String[0]);
+	}
+
+	/**
+	 * Builds the same tree as {@link #getLdapTree(Name)}, but only the given attributes
+	 * are returned by the server for each node. The children of each node are read with a
+	 * single one-level search.
+	 * @param root the DN of the root entry, relative to the base of the context source
+	 * @param attributes the attributes that the nodes need, for example
+	 * {@code objectclass}; all attributes are returned if none are given
+	 * @return the tree below, and including, the root entry
+	 */
+	public LdapTree getLdapTree(Name root, String... attributes) {
+		return getLdapTree(findNode(root, attributes), attributes);
+	}
+
+	private LdapTree getLdapTree(DirContextOperations rootContext, String[] attributes) {
+		LdapTree ldapTree = new LdapTree(rootContext);
+		for (DirContextOperations child : findChildren(rootContext.getDn(), attributes)) {
+			ldapTree.addSubTree(getLdapTree(child, attributes));
+		}
 		return ldapTree;
 	}
 
+	/**
+	 * Visits the tree below the root depth-first, calling the visitor as the entries come
+	 * back from the server rather than building an {@link LdapTree} first. Only the nodes
+	 * along the current path, and their open child enumerations, are held at any time, so
+	 * this also works for directories that do not fit in memory.
+	 * @param root the DN of the root entry, relative to the base of the context source
+	 * @param visitor the visitor to call for each entry
+	 * @param attributes the attributes that the visitor needs; all attributes are
+	 * returned if none are given
+	 */
+	public void traverse(Name root, LdapTreeVisitor visitor, String... attributes) {
+		traverse(findNode(root, attributes), visitor, 0, attributes);
+	}
+
+	private void traverse(DirContextOperations node, LdapTreeVisitor visitor, int currentDepth, String[] attributes) {
+		visitor.visit(node, currentDepth);
+		LdapQuery query = query(node.getDn(), SearchScope.ONELEVEL, attributes);
+		try (Stream<DirContextOperations> children = this.ldap.search().query(query).toStream(NODE_MAPPER)) {
+			children.forEach((child) -> traverse(child, visitor, currentDepth + 1, attributes));
+		}
+	}
+
+	protected DirContextOperations findNode(Name dn, String... attributes) {
+		return this.ldap.search().query(query(dn, SearchScope.OBJECT, attributes)).toObject(NODE_MAPPER);
+	}
+
+	protected List<DirContextOperations> findChildren(Name parentDn, String... attributes) {
+		return this.ldap.search().query(query(parentDn, SearchScope.ONELEVEL, attributes)).toList(NODE_MAPPER);
+	}
+
+	/**
+	 * Create a query for all entries in the given scope, returning only the given
+	 * attributes.
+	 * @param base the base of the search
+	 * @param scope the scope of the search
+	 * @param attributes the attributes to return; all attributes are returned if none are
+	 * given
+	 * @return the query
+	 */
+	protected LdapQuery query(Name base, SearchScope scope, String... attributes) {
+		LdapQueryBuilder query = LdapQueryBuilder.query().base(base).searchScope(scope);
+		if (!ObjectUtils.isEmpty(attributes)) {
+			query.attributes(attributes);
+		}
+		return query.where("objectclass").isPresent();
+	}
+
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.naming.Name;
+
+import org.springframework.ldap.NameNotFoundException;
+import org.springframework.ldap.core.ContextMapper;
+import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.ldap.core.LdapClient;
+import org.springframework.ldap.query.LdapQuery;
+import org.springframework.ldap.query.SearchScope;
+
+public class SubtreeSearchLdapTreeBuilder extends LdapTreeBuilder {
+
+	public SubtreeSearchLdapTreeBuilder(LdapClient ldap) {
+		super(ldap);
+	}
+
+	/**
+	 * Reads the entire tree with one single subtree search from the root and then
+	 * assembles the {@link LdapTree} hierarchy in memory by parent DN. The recursive
+	 * {@link LdapTreeBuilder} needs one round trip per node, which becomes prohibitively
+	 * slow for large directories; this implementation needs exactly one.
+	 * @param root the DN of the root entry, relative to the base of the context source
+	 * @param attributes the attributes that the nodes need; all attributes are returned
+	 * if none are given
+	 * @return the tree below, and including, the root entry
+	 */
+	@Override
+	public LdapTree getLdapTree(Name root, String... attributes) {
+		LdapQuery query = query(root, SearchScope.SUBTREE, attributes);
+		// Results are kept in server order, like the one-level searches of the base
+		// class.
+		Map<Name, LdapTree> nodes = new LinkedHashMap<>();
+		getLdapClient().search().query(query).toList((ContextMapper<Object>) (ctx) -> {
+			DirContextOperations node = (DirContextOperations) ctx;
+			nodes.put(node.getDn(), new LdapTree(node));
+			return null;
+		});
+
+		LdapTree rootTree = nodes.get(root);
+		if (rootTree == null) {
+			throw new NameNotFoundException("Root entry " + root + " was not returned by the search");
+		}
+
+		for (Map.Entry<Name, LdapTree> entry : nodes.entrySet()) {
+			Name dn = entry.getKey();
+			if (dn.size() <= root.size()) {
+				continue;
+			}
+			LdapTree parent = nodes.get(dn.getPrefix(dn.size() - 1));
+			if (parent != null) {
+				parent.addSubTree(entry.getValue());
+			}
+		}
+		return rootTree;
+	}
+
+}
@@ -0,0 +1,3 @@
+</p>
+</body>
+</html>
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.naming.Name;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.ldap.core.LdapClient;
+import org.springframework.ldap.samples.plain.domain.Person;
+import org.springframework.ldap.samples.plain.repository.PersonRepository;
+import org.springframework.ldap.support.LdapUtils;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration("/applicationContext.xml")
+public class CachingLdapTreeBuilderIntegrationTests {
+
+	private static final Name ROOT = LdapUtils.emptyLdapName();
+
+	@Autowired
+	private LdapClient ldap;
+
+	@Autowired
+	private CachingLdapTreeBuilder tested;
+
+	@Autowired
+	private PersonRepository persons;
+
+	private Person person;
+
+	@BeforeEach
+	void preparePerson() {
+		this.person = new Person();
+		this.person.setCountry("Sweden");
+		this.person.setCompany("company1");
+		this.person.setFullName("Cached Person");
+		this.person.setLastName("Person");
+		this.person.setDescription("Sweden, Company1, Cached Person");
+		this.tested.invalidate(ROOT);
+	}
+
+	@AfterEach
+	void removePerson() {
+		if (this.persons.getAllPersonNames().contains("Cached Person")) {
+			this.persons.delete(this.person);
+		}
+	}
+
+	@Test
+	void getLdapTreeWhenCalledTwiceThenSameSnapshot() {
+		LdapTree tree = this.tested.getLdapTree(ROOT, "objectclass");
+
+		assertThat(this.tested.getLdapTree(ROOT, "objectclass")).isSameAs(tree);
+		assertThat(this.tested.getLdapTree(ROOT)).isNotSameAs(tree);
+		assertThatExceptionOfType(UnsupportedOperationException.class)
+			.isThrownBy(() -> tree.addSubTree(new LdapTree(tree.getNode())));
+	}
+
+	@Test
+	void getLdapTreeWhenPersonChangedThenOnlySubtreeIsRead() {
+		LdapTree before = this.tested.getLdapTree(ROOT, "objectclass");
+
+		this.persons.create(this.person);
+		LdapTree created = this.tested.getLdapTree(ROOT, "objectclass");
+		assertThat(created).isNotSameAs(before);
+		assertThat(rows(created))
+			.containsExactlyInAnyOrderElementsOf(rows(new LdapTreeBuilder(this.ldap).getLdapTree(ROOT)));
+		assertThat(rows(created)).anyMatch((row) -> row.contains("cn=Cached Person"));
+		assertThat(company1(created).getSubContexts().get(0)).isSameAs(company1(before).getSubContexts().get(0));
+
+		this.person.setPhone("+46 555-000000");
+		this.persons.update(this.person);
+		LdapTree updated = this.tested.getLdapTree(ROOT, "objectclass");
+		assertThat(updated).isNotSameAs(created);
+		assertThat(rows(updated)).containsExactlyElementsOf(rows(created));
+
+		this.persons.delete(this.person);
+		LdapTree deleted = this.tested.getLdapTree(ROOT, "objectclass");
+		assertThat(rows(deleted)).containsExactlyElementsOf(rows(before));
+	}
+
+	@Test
+	void getLdapTreeWhenInvalidatedWhileReadingThenSnapshotIsNotKept() {
+		AtomicReference<CachingLdapTreeBuilder> builder = new AtomicReference<>();
+		builder.set(new CachingLdapTreeBuilder(new LdapTreeBuilder(this.ldap) {
+			@Override
+			public LdapTree getLdapTree(Name root, String... attributes) {
+				LdapTree tree = super.getLdapTree(root, attributes);
+				builder.get().invalidate(root);
+				return tree;
+			}
+		}));
+
+		LdapTree first = builder.get().getLdapTree(ROOT, "objectclass");
+
+		assertThat(builder.get().getLdapTree(ROOT, "objectclass")).isNotSameAs(first);
+	}
+
+	private static LdapTree company1(LdapTree tree) {
+		return tree.getSubContexts().get(0).getSubContexts().get(0);
+	}
+
+	private static List<String> rows(LdapTree tree) {
+		List<String> rows = new ArrayList<>();
+		tree.traverse((node, depth) -> rows.add(depth + ":" + node.getDn()));
+		return rows;
+	}
+
+}
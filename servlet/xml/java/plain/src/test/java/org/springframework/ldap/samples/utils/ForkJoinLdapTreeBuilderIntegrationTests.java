@@ -0,0 +1,82 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.naming.Name;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.ldap.core.LdapClient;
+import org.springframework.ldap.support.LdapUtils;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration("/applicationContext.xml")
+public class ForkJoinLdapTreeBuilderIntegrationTests {
+
+	@Autowired
+	private LdapClient ldap;
+
+	private ForkJoinLdapTreeBuilder tested;
+
+	@BeforeEach
+	void setup() {
+		this.tested = new ForkJoinLdapTreeBuilder(this.ldap, 2);
+	}
+
+	@AfterEach
+	void cleanup() {
+		this.tested.destroy();
+	}
+
+	@Test
+	void getLdapTreeWhenSubtreeThenSameAsRecursiveBuilder() {
+		assertSameTree(LdapUtils.newLdapName("c=Sweden"));
+	}
+
+	@Test
+	void getLdapTreeWhenWholeDirectoryThenSameAsRecursiveBuilder() {
+		assertSameTree(LdapUtils.emptyLdapName());
+	}
+
+	private void assertSameTree(Name root) {
+		LdapTree expected = new LdapTreeBuilder(this.ldap).getLdapTree(root);
+		LdapTree actual = this.tested.getLdapTree(root);
+
+		List<String> expectedRows = rows(expected);
+		assertThat(expectedRows).isNotEmpty();
+		assertThat(rows(actual)).containsExactlyElementsOf(expectedRows);
+	}
+
+	private static List<String> rows(LdapTree tree) {
+		List<String> rows = new ArrayList<>();
+		tree.traverse((node, depth) -> rows
+			.add(depth + ":" + node.getDn() + ":" + node.getAttributeSortedStringSet("objectclass")));
+		return rows;
+	}
+
+}
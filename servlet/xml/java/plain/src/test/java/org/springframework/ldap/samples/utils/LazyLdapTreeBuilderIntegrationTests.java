@@ -0,0 +1,115 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.naming.Name;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.ldap.core.ContextSource;
+import org.springframework.ldap.core.LdapClient;
+import org.springframework.ldap.support.LdapUtils;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration("/applicationContext.xml")
+public class LazyLdapTreeBuilderIntegrationTests {
+
+	@Autowired
+	private LdapClient ldap;
+
+	@Autowired
+	private ContextSource contextSource;
+
+	@Test
+	void getLdapTreeWhenUnlimitedDepthThenSameAsRecursiveBuilder() {
+		Name root = LdapUtils.emptyLdapName();
+		LdapTree expected = new LdapTreeBuilder(this.ldap).getLdapTree(root);
+		LazyLdapTree actual = new LazyLdapTreeBuilder(this.contextSource, 100).getLdapTree(root, Integer.MAX_VALUE);
+
+		List<String> expectedRows = rows(expected);
+		assertThat(expectedRows).hasSizeGreaterThan(2);
+		assertThat(rows(actual)).containsExactlyElementsOf(expectedRows);
+	}
+
+	@Test
+	void getLdapTreeWhenCreatedThenChildrenAreNotRead() {
+		LazyLdapTree tree = new LazyLdapTreeBuilder(this.contextSource, 10).getLdapTree(LdapUtils.emptyLdapName(), 1);
+
+		assertThat(tree.isLoaded()).isFalse();
+		assertThat(tree.getSubContexts()).isNotEmpty();
+		assertThat(tree.isLoaded()).isTrue();
+	}
+
+	@Test
+	void getLdapTreeWhenMaxDepthThenStopsAtThatDepth() {
+		Name root = LdapUtils.newLdapName("c=Sweden");
+		LazyLdapTree tree = new LazyLdapTreeBuilder(this.contextSource, 10).getLdapTree(root, 1, "objectclass");
+
+		assertThat(tree.isDepthLimitReached()).isFalse();
+		assertThat(tree.getSubContexts()).isNotEmpty().allSatisfy((child) -> {
+			assertThat(((LazyLdapTree) child).isDepthLimitReached()).isTrue();
+			assertThat(child.getSubContexts()).isEmpty();
+		});
+		assertThat(rows(tree)).allMatch((row) -> row.startsWith("0:") || row.startsWith("1:"));
+
+		Name child = tree.getSubContexts().get(0).getNode().getDn();
+		LazyLdapTree expanded = new LazyLdapTreeBuilder(this.contextSource, 10).getLdapTree(child, 1, "objectclass");
+		assertThat(expanded.getSubContexts()).isNotEmpty();
+	}
+
+	@Test
+	void getLdapTreeWhenSmallPagesThenEachPageHoldsTheNextChildren() {
+		Name root = LdapUtils.newLdapName("ou=company1,c=Sweden");
+		List<Name> expected = new LdapTreeBuilder(this.ldap).getLdapTree(root)
+			.getSubContexts()
+			.stream()
+			.map((child) -> child.getNode().getDn())
+			.toList();
+		assertThat(expected).hasSizeGreaterThan(1);
+
+		LazyLdapTreeBuilder builder = new LazyLdapTreeBuilder(this.contextSource, 1);
+		List<Name> actual = new ArrayList<>();
+		for (int page = 0; page < expected.size(); page++) {
+			LazyLdapTree tree = builder.getLdapTree(root, 1, page, "objectclass");
+			assertThat(tree.getSubContexts()).hasSize(1);
+			assertThat(tree.hasPreviousPage()).isEqualTo(page > 0);
+			assertThat(tree.hasNextPage()).isEqualTo(page < expected.size() - 1);
+			actual.add(tree.getSubContexts().get(0).getNode().getDn());
+		}
+		assertThat(actual).containsExactlyElementsOf(expected);
+
+		LazyLdapTree pastTheEnd = builder.getLdapTree(root, 1, expected.size(), "objectclass");
+		assertThat(pastTheEnd.getSubContexts()).isEmpty();
+		assertThat(pastTheEnd.hasNextPage()).isFalse();
+	}
+
+	private static List<String> rows(LdapTree tree) {
+		List<String> rows = new ArrayList<>();
+		tree.traverse((node, depth) -> rows.add(depth + ":" + node.getDn()));
+		return rows;
+	}
+
+}
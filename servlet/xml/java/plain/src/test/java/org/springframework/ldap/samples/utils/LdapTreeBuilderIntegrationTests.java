@@ -16,6 +16,11 @@
 
 package org.springframework.ldap.samples.utils;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -32,6 +37,7 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 @ExtendWith(SpringExtension.class)
 @ContextConfiguration("/applicationContext.xml")
@@ -46,6 +52,52 @@ public class LdapTreeBuilderIntegrationTests {
 		ldapTree.traverse(new TestVisitor());
 	}
 
+	@Test
+	void testTraverse() {
+		this.tested.traverse(LdapUtils.newLdapName("c=Sweden"), new TestVisitor());
+	}
+
+	@Test
+	void testTraverseWithStreamingHtmlRows() {
+		HtmlRowLdapTreeVisitor rowFormat = new HtmlRowLdapTreeVisitor();
+		this.tested.traverse(LdapUtils.newLdapName("c=Sweden"), rowFormat);
+
+		StringWriter writer = new StringWriter();
+		StreamingHtmlRowLdapTreeVisitor visitor = new StreamingHtmlRowLdapTreeVisitor(writer,
+				new HtmlRowLdapTreeVisitor(), 3);
+		this.tested.traverse(LdapUtils.newLdapName("c=Sweden"), visitor);
+
+		assertThat(visitor.getRowCount()).isEqualTo(4);
+		assertThat(writer.toString()).isEqualTo(String.join("", rowFormat.getRows()));
+	}
+
+	@Test
+	void testTraverseWithStreamingHtmlRowsStopsWhenTheClientIsGone() {
+		Writer closed = new Writer() {
+
+			@Override
+			public void write(char[] chars, int offset, int length) throws IOException {
+				throw new IOException("Broken pipe");
+			}
+
+			@Override
+			public void flush() throws IOException {
+				throw new IOException("Broken pipe");
+			}
+
+			@Override
+			public void close() {
+			}
+
+		};
+		StreamingHtmlRowLdapTreeVisitor visitor = new StreamingHtmlRowLdapTreeVisitor(new PrintWriter(closed),
+				new HtmlRowLdapTreeVisitor(), 1);
+
+		assertThatExceptionOfType(UncheckedIOException.class)
+			.isThrownBy(() -> this.tested.traverse(LdapUtils.newLdapName("c=Sweden"), visitor));
+		assertThat(visitor.getRowCount()).isEqualTo(1);
+	}
+
 	private static final class TestVisitor implements LdapTreeVisitor {
 
 		private static final LdapName DN_1 = LdapUtils.newLdapName("c=Sweden");
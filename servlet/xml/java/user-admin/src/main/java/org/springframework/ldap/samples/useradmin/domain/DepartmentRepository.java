@@ -19,6 +19,9 @@ package org.springframework.ldap.samples.useradmin.domain;
 import java.util.List;
 import java.util.Map;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 /**
  * The repository for departments.
  *
@@ -28,4 +31,17 @@ public interface DepartmentRepository {
 
 	Map<String, List<String>> getDepartmentMap();
 
+	/**
+	 * The department map as a JSON object of department names to arrays of unit names.
+	 * @return the departments as JSON
+	 */
+	default String getDepartmentMapAsJson() {
+		try {
+			return new ObjectMapper().writeValueAsString(getDepartmentMap());
+		}
+		catch (JsonProcessingException ex) {
+			throw new IllegalStateException("Could not serialize the departments", ex);
+		}
+	}
+
 }
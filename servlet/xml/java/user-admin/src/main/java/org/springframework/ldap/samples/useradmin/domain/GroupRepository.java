@@ -32,10 +32,6 @@ import org.springframework.data.ldap.repository.Query;
  * generated instance by 'weaving in' a reference to a bean in the applicationContext
  * implementing the interface.
  *
- * In the {@link #findByName(String)} method, the filter will be automatically be
- * generated based on naming convention; the 'ByName' constraint will be fulfilled using a
- * filter based on the attribute mapping of the name attribute in the target entity class.
- *
  * The {@link #findByMember(javax.naming.Name)} acts on the Query annotation, building an
  * {@link org.springframework.ldap.query.LdapQuery} from the annotation attributes.
  *
@@ -48,8 +44,6 @@ public interface GroupRepository extends LdapRepository<Group>, GroupRepositoryE
 	 */
 	String USER_GROUP = "ROLE_USER";
 
-	Group findByName(String groupName);
-
 	@Query("(member={0})")
 	Collection<Group> findByMember(Name member);
 
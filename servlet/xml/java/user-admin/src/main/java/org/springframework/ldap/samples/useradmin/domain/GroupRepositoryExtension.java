@@ -16,7 +16,11 @@
 
 package org.springframework.ldap.samples.useradmin.domain;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+
+import javax.naming.Name;
 
 /**
  * Additional helpful methods for group administration.
@@ -27,6 +31,47 @@ public interface GroupRepositoryExtension {
 
 	List<String> getAllGroupNames();
 
+	/**
+	 * Find a group by its name. The group's entry is read directly from its DN, through
+	 * the entry cache if one is configured.
+	 * @param groupName the name of the group
+	 * @return the group, or {@code null} if there is no such group
+	 */
+	Group findByName(String groupName);
+
 	void create(Group group);
 
+	/**
+	 * Add members to a group by adding just these values to its {@code member} attribute,
+	 * without reading the group first. Values that are already members are ignored.
+	 * @param groupName the name of the group
+	 * @param members the absolute DNs of the members to add
+	 */
+	void addMembers(String groupName, Collection<Name> members);
+
+	/**
+	 * Remove members from a group by removing just these values from its {@code member}
+	 * attribute, without reading the group first. Values that are not members are
+	 * ignored.
+	 * @param groupName the name of the group
+	 * @param members the absolute DNs of the members to remove
+	 */
+	void removeMembers(String groupName, Collection<Name> members);
+
+	/**
+	 * Replace one member of a group with another in a single modify, without reading the
+	 * group first.
+	 * @param groupName the name of the group
+	 * @param oldMember the absolute DN of the member to remove
+	 * @param newMember the absolute DN of the member to add
+	 */
+	void replaceMember(String groupName, Name oldMember, Name newMember);
+
+	/**
+	 * Find the names of the groups that a member belongs to.
+	 * @param member the absolute DN of the member
+	 * @return the names of the groups
+	 */
+	Set<String> findGroupNamesByMember(Name member);
+
 }
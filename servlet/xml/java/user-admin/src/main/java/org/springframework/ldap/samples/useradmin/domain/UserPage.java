@@ -0,0 +1,63 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.useradmin.domain;
+
+import java.util.List;
+
+public final class UserPage {
+
+	private final List<User> users;
+
+	private final String previousCursor;
+
+	private final String nextCursor;
+
+	/**
+	 * Create a page of users.
+	 * @param users the users on this page, in listing order
+	 * @param previousCursor the cursor for the page before this one, or {@code null} if
+	 * this is the first page
+	 * @param nextCursor the cursor for the page after this one, or {@code null} if this
+	 * is the last page
+	 */
+	public UserPage(List<User> users, String previousCursor, String nextCursor) {
+		this.users = List.copyOf(users);
+		this.previousCursor = previousCursor;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<User> getUsers() {
+		return this.users;
+	}
+
+	public String getPreviousCursor() {
+		return this.previousCursor;
+	}
+
+	public String getNextCursor() {
+		return this.nextCursor;
+	}
+
+	public boolean hasPrevious() {
+		return this.previousCursor != null;
+	}
+
+	public boolean hasNext() {
+		return this.nextCursor != null;
+	}
+
+}
@@ -25,7 +25,7 @@ import org.springframework.data.ldap.repository.LdapRepository;
  *
  * @author Mattias Hellborg Arthursson
  */
-public interface UserRepository extends LdapRepository<User> {
+public interface UserRepository extends LdapRepository<User>, UserRepositoryExtension {
 
 	User findByEmployeeNumber(int employeeNumber);
 
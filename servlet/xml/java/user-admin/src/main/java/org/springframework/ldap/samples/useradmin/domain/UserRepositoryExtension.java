@@ -0,0 +1,78 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.useradmin.domain;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import javax.naming.Name;
+
+import org.springframework.ldap.filter.Filter;
+
+public interface UserRepositoryExtension {
+
+	/**
+	 * Find one page of users, sorted by full name. Only the requested page is transferred
+	 * from the directory.
+	 * @param cursor a cursor from a previously returned {@link UserPage}, or {@code null}
+	 * for the first page
+	 * @param pageSize the maximum number of users on the page
+	 * @return the users after the cursor
+	 */
+	UserPage findPageAfter(String cursor, int pageSize);
+
+	/**
+	 * Find the page of users that precedes a cursor, sorted by full name.
+	 * @param cursor the {@link UserPage#getPreviousCursor() previous cursor} of a page
+	 * @param pageSize the maximum number of users on the page
+	 * @return the users before the cursor
+	 */
+	UserPage findPageBefore(String cursor, int pageSize);
+
+	/**
+	 * Find one page of the users that match a filter and a predicate, sorted by full
+	 * name. The filter is evaluated by the directory; the predicate is for conditions
+	 * that it cannot evaluate.
+	 * @param cursor a cursor from a previously returned {@link UserPage} for the same
+	 * filter and predicate, or {@code null} for the first page
+	 * @param pageSize the maximum number of users on the page
+	 * @param filter the filter the users must match, or {@code null}
+	 * @param include the users to include, or {@code null} for all
+	 * @return the matching users after the cursor
+	 */
+	UserPage findPageAfter(String cursor, int pageSize, Filter filter, Predicate<User> include);
+
+	/**
+	 * Find the page of users that precedes a cursor and that match a filter and a
+	 * predicate, sorted by full name.
+	 * @param cursor the {@link UserPage#getPreviousCursor() previous cursor} of a page
+	 * @param pageSize the maximum number of users on the page
+	 * @param filter the filter the users must match, or {@code null}
+	 * @param include the users to include, or {@code null} for all
+	 * @return the matching users before the cursor
+	 */
+	UserPage findPageBefore(String cursor, int pageSize, Filter filter, Predicate<User> include);
+
+	/**
+	 * Find the users with the given ids using one search per batch of ids that share a
+	 * parent entry, rather than one lookup per id. Ids that do not exist are skipped.
+	 * @param ids the ids of the users, relative to the base
+	 * @return the found users, in the order of the ids
+	 */
+	List<User> findAllInBatches(Iterable<Name> ids);
+
+}
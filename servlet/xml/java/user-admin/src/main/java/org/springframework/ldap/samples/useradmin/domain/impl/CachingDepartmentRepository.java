@@ -0,0 +1,193 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.useradmin.domain.impl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.ldap.samples.useradmin.domain.DepartmentRepository;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+public class CachingDepartmentRepository implements DepartmentRepository, DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(CachingDepartmentRepository.class);
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private final DepartmentRepository delegate;
+
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+
+	// Counts evictions; a background refresh that an eviction overtook is dropped.
+	private final AtomicLong generation = new AtomicLong();
+
+	private final ExecutorService refresher;
+
+	private long timeToLiveNanos = TimeUnit.MINUTES.toNanos(10);
+
+	private long refreshAheadNanos = TimeUnit.MINUTES.toNanos(8);
+
+	private volatile Snapshot snapshot;
+
+	/**
+	 * Create a cache in front of another repository. The first read loads the
+	 * departments; reads after {@code refreshAheadSeconds} return the cached departments
+	 * and reload them in the background, and reads after {@code timeToLiveSeconds} wait
+	 * for a reload.
+	 * @param delegate the repository to read the departments from
+	 */
+	public CachingDepartmentRepository(DepartmentRepository delegate) {
+		this.delegate = delegate;
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("department-refresh-");
+		threadFactory.setDaemon(true);
+		this.refresher = Executors.newSingleThreadExecutor(threadFactory);
+	}
+
+	/**
+	 * How long the departments are used before they must be reloaded. Default is 600.
+	 * @param timeToLiveSeconds the time to live in seconds
+	 */
+	public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+		Assert.isTrue(timeToLiveSeconds > 0, "timeToLiveSeconds must be positive");
+		this.timeToLiveNanos = TimeUnit.SECONDS.toNanos(timeToLiveSeconds);
+	}
+
+	/**
+	 * How long the departments are used before a read starts reloading them in the
+	 * background. Default is 480; a value not below the time to live disables the
+	 * background reload.
+	 * @param refreshAheadSeconds the time before refreshing in seconds
+	 */
+	public void setRefreshAheadSeconds(long refreshAheadSeconds) {
+		Assert.isTrue(refreshAheadSeconds >= 0, "refreshAheadSeconds must not be negative");
+		this.refreshAheadNanos = TimeUnit.SECONDS.toNanos(refreshAheadSeconds);
+	}
+
+	/**
+	 * The cached departments. The map and its lists are unmodifiable.
+	 */
+	@Override
+	public Map<String, List<String>> getDepartmentMap() {
+		return current().departments;
+	}
+
+	/**
+	 * The JSON form of the cached departments, serialized once per load.
+	 */
+	@Override
+	public String getDepartmentMapAsJson() {
+		return current().json;
+	}
+
+	/**
+	 * Drop the cached departments, so that the next read loads them again. A background
+	 * refresh that is already running does not put back what it read.
+	 */
+	public synchronized void evict() {
+		this.generation.incrementAndGet();
+		this.snapshot = null;
+	}
+
+	@Override
+	public void destroy() {
+		this.refresher.shutdownNow();
+	}
+
+	private Snapshot current() {
+		Snapshot current = this.snapshot;
+		long now = System.nanoTime();
+		if (current == null || now - current.loadedAt >= this.timeToLiveNanos) {
+			return reload();
+		}
+		if (now - current.loadedAt >= this.refreshAheadNanos && this.refreshing.compareAndSet(false, true)) {
+			this.refresher.execute(this::refresh);
+		}
+		return current;
+	}
+
+	private synchronized Snapshot reload() {
+		Snapshot current = this.snapshot;
+		if (current != null && System.nanoTime() - current.loadedAt < this.timeToLiveNanos) {
+			// Loaded by another thread while this one waited.
+			return current;
+		}
+		this.snapshot = load();
+		return this.snapshot;
+	}
+
+	private void refresh() {
+		try {
+			long generation = this.generation.get();
+			Snapshot loaded = load();
+			synchronized (this) {
+				if (generation == this.generation.get()) {
+					this.snapshot = loaded;
+				}
+			}
+		}
+		catch (RuntimeException ex) {
+			logger.warn("Could not refresh the departments, keeping the cached ones", ex);
+		}
+		finally {
+			this.refreshing.set(false);
+		}
+	}
+
+	private Snapshot load() {
+		Map<String, List<String>> departments = new TreeMap<>();
+		this.delegate.getDepartmentMap()
+			.forEach((department, units) -> departments.put(department, List.copyOf(units)));
+		try {
+			return new Snapshot(Collections.unmodifiableMap(departments), OBJECT_MAPPER.writeValueAsString(departments),
+					System.nanoTime());
+		}
+		catch (JsonProcessingException ex) {
+			throw new IllegalStateException("Could not serialize the departments", ex);
+		}
+	}
+
+	private static final class Snapshot {
+
+		private final Map<String, List<String>> departments;
+
+		private final String json;
+
+		private final long loadedAt;
+
+		Snapshot(Map<String, List<String>> departments, String json, long loadedAt) {
+			this.departments = departments;
+			this.json = json;
+			this.loadedAt = loadedAt;
+		}
+
+	}
+
+}
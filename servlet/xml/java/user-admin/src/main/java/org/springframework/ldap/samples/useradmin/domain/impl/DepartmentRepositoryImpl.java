@@ -50,14 +50,11 @@ public class DepartmentRepositoryImpl implements DepartmentRepository {
 
 	@Override
 	public Map<String, List<String>> getDepartmentMap() {
-		return new HashMap<>() {
-			{
-				List<String> allDepartments = getAllDepartments();
-				for (String oneDepartment : allDepartments) {
-					put(oneDepartment, getAllUnitsForDepartment(oneDepartment));
-				}
-			}
-		};
+		Map<String, List<String>> departments = new HashMap<>();
+		for (String oneDepartment : getAllDepartments()) {
+			departments.put(oneDepartment, getAllUnitsForDepartment(oneDepartment));
+		}
+		return departments;
 	}
 
 	private List<String> getAllDepartments() {
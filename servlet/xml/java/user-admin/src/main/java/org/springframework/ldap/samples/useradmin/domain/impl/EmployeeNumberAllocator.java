@@ -0,0 +1,146 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.useradmin.domain.impl;
+
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.ModificationItem;
+import javax.naming.ldap.LdapName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.ldap.NoSuchAttributeException;
+import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.ldap.core.LdapClient;
+import org.springframework.ldap.support.LdapUtils;
+
+public class EmployeeNumberAllocator {
+
+	private static final Log logger = LogFactory.getLog(EmployeeNumberAllocator.class);
+
+	private final LdapClient ldap;
+
+	private LdapName counterDn = LdapUtils.newLdapName("cn=employeeNumber,ou=System,ou=IT,ou=Departments");
+
+	private String counterAttribute = "serialNumber";
+
+	private int blockSize = 100;
+
+	private int maxAttempts = 10;
+
+	private int next;
+
+	private int limit;
+
+	/**
+	 * Create an allocator that hands out employee numbers from blocks reserved in a
+	 * counter entry in the directory. Each reservation moves the counter with one modify
+	 * that removes the value read and adds the next one, which fails if another instance
+	 * moved the counter in between; the numbers of a block are then handed out without
+	 * contacting the directory.
+	 * @param ldap the client to read and move the counter with
+	 */
+	@Autowired
+	public EmployeeNumberAllocator(LdapClient ldap) {
+		this.ldap = ldap;
+	}
+
+	/**
+	 * The DN of the entry holding the counter, relative to the base. Default is
+	 * {@code cn=employeeNumber,ou=System,ou=IT,ou=Departments}, a {@code device} entry
+	 * next to the system user, where the department, user and group views do not list it.
+	 * @param counterDn the DN of the counter entry
+	 */
+	public void setCounterDn(String counterDn) {
+		this.counterDn = LdapUtils.newLdapName(counterDn);
+	}
+
+	/**
+	 * The attribute of the counter entry holding the first number that has not been
+	 * reserved yet. Default is {@code serialNumber}, which the {@code device} object
+	 * class allows without resorting to {@code extensibleObject}.
+	 * @param counterAttribute the name of the attribute
+	 */
+	public void setCounterAttribute(String counterAttribute) {
+		this.counterAttribute = counterAttribute;
+	}
+
+	/**
+	 * How many numbers to reserve at a time. Numbers of a block that are not handed out
+	 * before a restart are never used. Default is 100.
+	 * @param blockSize the number of numbers per reservation
+	 */
+	public void setBlockSize(int blockSize) {
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * How often to try to move the counter before giving up when other instances keep
+	 * moving it first. Default is 10.
+	 * @param maxAttempts the maximum number of reservation attempts
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Hand out the next employee number, reserving a new block first if the current one
+	 * is used up.
+	 * @return an employee number no other allocator on the same counter hands out
+	 */
+	public synchronized int next() {
+		if (this.next == this.limit) {
+			reserveBlock();
+		}
+		return this.next++;
+	}
+
+	private void reserveBlock() {
+		for (int attempt = 1; attempt <= this.maxAttempts; attempt++) {
+			DirContextOperations counter = this.ldap.search().name(this.counterDn).toEntry();
+			String current = counter.getStringAttribute(this.counterAttribute);
+			int first = Integer.parseInt(current);
+			int limit = Math.addExact(first, this.blockSize);
+			ModificationItem remove = new ModificationItem(DirContext.REMOVE_ATTRIBUTE,
+					new BasicAttribute(this.counterAttribute, current));
+			ModificationItem add = new ModificationItem(DirContext.ADD_ATTRIBUTE,
+					new BasicAttribute(this.counterAttribute, Integer.toString(limit)));
+			try {
+				this.ldap.modify(this.counterDn).attributes(remove, add).execute();
+			}
+			catch (NoSuchAttributeException ex) {
+				// Another instance reserved a block after we read the counter.
+				if (logger.isDebugEnabled()) {
+					logger.debug("Counter " + this.counterDn + " moved past " + current + ", attempt " + attempt);
+				}
+				continue;
+			}
+			this.next = first;
+			this.limit = limit;
+			if (logger.isDebugEnabled()) {
+				logger.debug("Reserved employee numbers " + first + " to " + (limit - 1));
+			}
+			return;
+		}
+		throw new ConcurrencyFailureException(
+				"Could not reserve employee numbers from " + this.counterDn + " in " + this.maxAttempts + " attempts");
+	}
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.useradmin.domain.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.naming.Name;
+import javax.naming.ldap.LdapName;
+
+import org.springframework.ldap.core.DirContextAdapter;
+import org.springframework.ldap.odm.core.ObjectDirectoryMapper;
+import org.springframework.ldap.odm.core.impl.DefaultObjectDirectoryMapper;
+import org.springframework.ldap.samples.useradmin.domain.Group;
+import org.springframework.ldap.support.LdapUtils;
+
+public class EntryCache {
+
+	// In access order, so that the least recently used entry comes first.
+	private final LinkedHashMap<LdapName, CachedEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private ObjectDirectoryMapper mapper = new DefaultObjectDirectoryMapper();
+
+	private long maximumWeight = 10000;
+
+	private long timeToLiveNanos = TimeUnit.SECONDS.toNanos(60);
+
+	private long weight;
+
+	private long hits;
+
+	private long misses;
+
+	private long evictions;
+
+	// Counts calls to evict; a load that an evict overtook is not cached.
+	private long generation;
+
+	/**
+	 * The mapper used to keep entries as attributes and to map them again on each hit.
+	 * Default is a new {@link DefaultObjectDirectoryMapper}.
+	 * @param mapper the mapper
+	 */
+	public void setObjectDirectoryMapper(ObjectDirectoryMapper mapper) {
+		this.mapper = mapper;
+	}
+
+	/**
+	 * The maximum total weight of the cached entries. A user weighs 1, a group 1 plus its
+	 * number of members. The least recently used entries are evicted to stay below it;
+	 * entries heavier than this are not cached at all. Default is 10000.
+	 * @param maximumWeight the maximum total weight
+	 */
+	public void setMaximumWeight(long maximumWeight) {
+		this.maximumWeight = maximumWeight;
+	}
+
+	/**
+	 * How long an entry is kept after it was read. Changes made through this application
+	 * evict the entries they affect; this bounds how long changes made elsewhere go
+	 * unnoticed. Default is 60.
+	 * @param timeToLiveSeconds the time to live in seconds
+	 */
+	public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+		this.timeToLiveNanos = TimeUnit.SECONDS.toNanos(timeToLiveSeconds);
+	}
+
+	/**
+	 * Get a mapped entry from the cache, or read it and cache it if it is not there.
+	 * Entries that are not found are not cached. Every call returns a new instance, so
+	 * callers may change what they get without affecting the cache.
+	 * @param <T> the type of the entry
+	 * @param id the DN of the entry
+	 * @param type the type of the entry
+	 * @param loader reads the entry from the directory
+	 * @return the entry, or empty if it was not found
+	 */
+	public <T> Optional<T> get(Name id, Class<T> type, Function<Name, Optional<T>> loader) {
+		LdapName key = LdapUtils.newLdapName(id);
+		DirContextAdapter hit = null;
+		long generation;
+		synchronized (this) {
+			CachedEntry cached = this.entries.get(key);
+			if (cached != null && System.nanoTime() - cached.expiresAt >= 0) {
+				remove(key);
+				this.evictions++;
+				cached = null;
+			}
+			if (cached != null && cached.type == type) {
+				this.hits++;
+				hit = cached.attributes;
+			}
+			else {
+				this.misses++;
+			}
+			generation = this.generation;
+		}
+		if (hit != null) {
+			return Optional.of(this.mapper.mapFromLdapDataEntry(hit, type));
+		}
+		Optional<T> loaded = loader.apply(id);
+		loaded.ifPresent((entry) -> put(key, entry, generation));
+		return loaded;
+	}
+
+	/**
+	 * Remove an entry from the cache, after it was changed, moved or deleted.
+	 * @param id the DN of the entry
+	 */
+	public synchronized void evict(Name id) {
+		this.generation++;
+		remove(LdapUtils.newLdapName(id));
+	}
+
+	public synchronized void evictAll() {
+		this.generation++;
+		this.entries.clear();
+		this.weight = 0;
+	}
+
+	public synchronized long getHitCount() {
+		return this.hits;
+	}
+
+	public synchronized long getMissCount() {
+		return this.misses;
+	}
+
+	/**
+	 * The share of lookups answered from the cache since it was created.
+	 * @return the hit rate, 1 if there were no lookups yet
+	 */
+	public synchronized double getHitRate() {
+		long lookups = this.hits + this.misses;
+		return (lookups != 0) ? (double) this.hits / lookups : 1;
+	}
+
+	/**
+	 * The number of entries dropped for weight or age since the cache was created;
+	 * entries removed by {@link #evict(Name)} are not counted.
+	 * @return the number of evictions
+	 */
+	public synchronized long getEvictionCount() {
+		return this.evictions;
+	}
+
+	public synchronized int getEntryCount() {
+		return this.entries.size();
+	}
+
+	public synchronized long getWeight() {
+		return this.weight;
+	}
+
+	private void put(LdapName key, Object entry, long generation) {
+		DirContextAdapter attributes = new DirContextAdapter(key);
+		this.mapper.mapToLdapDataEntry(entry, attributes);
+		CachedEntry cached = new CachedEntry(entry.getClass(), attributes, weigh(entry),
+				System.nanoTime() + this.timeToLiveNanos);
+		put(key, cached, generation);
+	}
+
+	private synchronized void put(LdapName key, CachedEntry cached, long generation) {
+		if (generation != this.generation) {
+			return;
+		}
+		remove(key);
+		if (cached.weight > this.maximumWeight) {
+			return;
+		}
+		this.entries.put(key, cached);
+		this.weight += cached.weight;
+		Iterator<CachedEntry> eldest = this.entries.values().iterator();
+		while (this.weight > this.maximumWeight && eldest.hasNext()) {
+			this.weight -= eldest.next().weight;
+			eldest.remove();
+			this.evictions++;
+		}
+	}
+
+	private void remove(LdapName key) {
+		CachedEntry removed = this.entries.remove(key);
+		if (removed != null) {
+			this.weight -= removed.weight;
+		}
+	}
+
+	private static int weigh(Object entry) {
+		return (entry instanceof Group group) ? 1 + group.getMembers().size() : 1;
+	}
+
+	private record CachedEntry(Class<?> type, DirContextAdapter attributes, int weight, long expiresAt) {
+	}
+
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.useradmin.domain.impl;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.Name;
+import javax.naming.directory.Attribute;
+import javax.naming.ldap.LdapName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.ldap.core.AttributesMapper;
+import org.springframework.ldap.core.LdapClient;
+import org.springframework.ldap.filter.AndFilter;
+import org.springframework.ldap.filter.EqualsFilter;
+import org.springframework.ldap.filter.Filter;
+import org.springframework.ldap.filter.GreaterThanOrEqualsFilter;
+import org.springframework.ldap.filter.NotFilter;
+import org.springframework.ldap.filter.OrFilter;
+import org.springframework.ldap.query.LdapQueryBuilder;
+import org.springframework.ldap.support.LdapUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+public class GroupMembershipIndex implements SmartInitializingSingleton, DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(GroupMembershipIndex.class);
+
+	private static final LdapName GROUPS_OU = LdapUtils.newLdapName("ou=Groups");
+
+	// GeneralizedTime, as used by modifyTimestamp and whenChanged: an optional fraction
+	// of a second and either Z or an offset.
+	private static final DateTimeFormatter GENERALIZED_TIME = new DateTimeFormatterBuilder()
+		.appendPattern("uuuuMMddHHmmss")
+		.optionalStart()
+		.appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true)
+		.optionalEnd()
+		.appendOffset("+HHmm", "Z")
+		.toFormatter()
+		.withZone(ZoneOffset.UTC);
+
+	private final LdapClient ldap;
+
+	// Replaced as a whole by rebuild, so that readers never see an emptied index.
+	private volatile Map<LdapName, Set<String>> groupsByMember = new ConcurrentHashMap<>();
+
+	private volatile Map<String, Set<LdapName>> membersByGroup = new ConcurrentHashMap<>();
+
+	private volatile Map<String, Instant> timestampsByGroup = new ConcurrentHashMap<>();
+
+	private String timestampAttribute = "modifyTimestamp";
+
+	private long checkIntervalNanos = TimeUnit.SECONDS.toNanos(10);
+
+	private volatile Instant lastTimestamp;
+
+	private ScheduledExecutorService refresher;
+
+	/**
+	 * Create an index from member DN to the names of the groups the member belongs to.
+	 * All groups are read with one search when the application context has started; after
+	 * that the index is updated by {@link GroupRepositoryImpl} and, for changes made
+	 * elsewhere, by a background search for groups with a newer modification timestamp.
+	 * @param ldap the client to search the groups with
+	 */
+	@Autowired
+	public GroupMembershipIndex(LdapClient ldap) {
+		this.ldap = ldap;
+	}
+
+	/**
+	 * The operational attribute holding the time a group was last modified. Default is
+	 * {@code modifyTimestamp}; on Active Directory, where it cannot be searched, use
+	 * {@code whenChanged}.
+	 * @param timestampAttribute the name of the attribute
+	 */
+	public void setTimestampAttribute(String timestampAttribute) {
+		this.timestampAttribute = timestampAttribute;
+	}
+
+	/**
+	 * How often the directory is checked in the background for groups changed by others.
+	 * Default is 10.
+	 * @param checkIntervalSeconds the time between checks in seconds
+	 */
+	public void setCheckIntervalSeconds(long checkIntervalSeconds) {
+		this.checkIntervalNanos = TimeUnit.SECONDS.toNanos(checkIntervalSeconds);
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		rebuild();
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("group-membership-refresh-");
+		threadFactory.setDaemon(true);
+		this.refresher = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		this.refresher.scheduleWithFixedDelay(this::checkForChanges, this.checkIntervalNanos, this.checkIntervalNanos,
+				TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void destroy() {
+		if (this.refresher != null) {
+			this.refresher.shutdownNow();
+		}
+	}
+
+	/**
+	 * Read all groups again and replace the contents of the index. The index is built
+	 * aside and swapped in, so lookups keep using the previous contents until then.
+	 */
+	public void rebuild() {
+		long start = System.nanoTime();
+		List<GroupEntry> groups = search(null);
+		Map<LdapName, Set<String>> groupsByMember = new ConcurrentHashMap<>();
+		Map<String, Set<LdapName>> membersByGroup = new ConcurrentHashMap<>();
+		Map<String, Instant> timestampsByGroup = new ConcurrentHashMap<>();
+		Instant lastTimestamp = null;
+		for (GroupEntry group : groups) {
+			membersByGroup.put(group.name, new HashSet<>(group.members));
+			for (LdapName member : group.members) {
+				groupsByMember.computeIfAbsent(member, (key) -> ConcurrentHashMap.newKeySet()).add(group.name);
+			}
+			if (group.timestamp != null) {
+				timestampsByGroup.put(group.name, group.timestamp);
+				if (lastTimestamp == null || group.timestamp.isAfter(lastTimestamp)) {
+					lastTimestamp = group.timestamp;
+				}
+			}
+		}
+		synchronized (this) {
+			this.groupsByMember = groupsByMember;
+			this.membersByGroup = membersByGroup;
+			this.timestampsByGroup = timestampsByGroup;
+			this.lastTimestamp = lastTimestamp;
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Indexed the members of " + groups.size() + " groups in "
+					+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+		}
+	}
+
+	/**
+	 * Find the groups a member belongs to. Changes made by others show up once the
+	 * background check has seen them.
+	 * @param member the absolute DN of the member
+	 * @return the names of the groups
+	 */
+	public Set<String> findGroupNames(Name member) {
+		Set<String> groupNames = this.groupsByMember.get(LdapUtils.newLdapName(member));
+		return (groupNames != null) ? Set.copyOf(groupNames) : Set.of();
+	}
+
+	/**
+	 * Read the groups that were modified since the newest modification timestamp seen so
+	 * far, and index their current members. The groups that already had that timestamp
+	 * when they were indexed are left out of the search, so a group is only read again
+	 * once it has changed. Groups deleted by others are only noticed by
+	 * {@link #rebuild()}.
+	 */
+	public void refresh() {
+		Instant since = this.lastTimestamp;
+		if (since == null) {
+			rebuild();
+			return;
+		}
+		// Searched without holding the lock; a group changed through the repository in
+		// the meantime gets a newer timestamp, so the next check corrects it.
+		List<GroupEntry> changed = search(since);
+		synchronized (this) {
+			changed.forEach(this::index);
+		}
+	}
+
+	/**
+	 * Record members added to a group.
+	 * @param groupName the name of the group
+	 * @param members the absolute DNs of the added members
+	 */
+	public synchronized void added(String groupName, Collection<Name> members) {
+		Set<LdapName> groupMembers = this.membersByGroup.computeIfAbsent(groupName, (name) -> new HashSet<>());
+		for (Name member : members) {
+			LdapName dn = LdapUtils.newLdapName(member);
+			groupMembers.add(dn);
+			this.groupsByMember.computeIfAbsent(dn, (key) -> ConcurrentHashMap.newKeySet()).add(groupName);
+		}
+	}
+
+	/**
+	 * Record members removed from a group.
+	 * @param groupName the name of the group
+	 * @param members the absolute DNs of the removed members
+	 */
+	public synchronized void removed(String groupName, Collection<Name> members) {
+		Set<LdapName> groupMembers = this.membersByGroup.get(groupName);
+		for (Name member : members) {
+			LdapName dn = LdapUtils.newLdapName(member);
+			if (groupMembers != null) {
+				groupMembers.remove(dn);
+			}
+			this.groupsByMember.computeIfPresent(dn, (key, groupNames) -> {
+				groupNames.remove(groupName);
+				return groupNames.isEmpty() ? null : groupNames;
+			});
+		}
+	}
+
+	// Run by the refresher; an exception would cancel all further checks.
+	private void checkForChanges() {
+		try {
+			refresh();
+		}
+		catch (RuntimeException ex) {
+			logger.warn("Could not check for groups changed by others", ex);
+		}
+	}
+
+	private void index(GroupEntry group) {
+		if (group.timestamp != null && group.timestamp.equals(this.timestampsByGroup.get(group.name))) {
+			return;
+		}
+		Set<LdapName> previous = this.membersByGroup.get(group.name);
+		if (previous != null) {
+			removed(group.name, List.copyOf(previous));
+		}
+		this.membersByGroup.put(group.name, new HashSet<>());
+		added(group.name, List.copyOf(group.members));
+		if (group.timestamp != null) {
+			this.timestampsByGroup.put(group.name, group.timestamp);
+			if (this.lastTimestamp == null || group.timestamp.isAfter(this.lastTimestamp)) {
+				this.lastTimestamp = group.timestamp;
+			}
+		}
+	}
+
+	// All groups, or those modified at or after the given time that were not indexed
+	// with exactly that timestamp.
+	private List<GroupEntry> search(Instant since) {
+		Filter filter = new EqualsFilter("objectclass", "groupOfNames");
+		if (since != null) {
+			String timestamp = GENERALIZED_TIME.format(since);
+			AndFilter changed = new AndFilter().and(filter)
+				.and(new GreaterThanOrEqualsFilter(this.timestampAttribute, timestamp));
+			List<String> unchanged = this.timestampsByGroup.entrySet()
+				.stream()
+				.filter((indexed) -> indexed.getValue().equals(since))
+				.map(Map.Entry::getKey)
+				.toList();
+			if (!unchanged.isEmpty()) {
+				OrFilter names = new OrFilter();
+				unchanged.forEach((groupName) -> names.or(new EqualsFilter("cn", groupName)));
+				changed.and(new NotFilter(
+						new AndFilter().and(new EqualsFilter(this.timestampAttribute, timestamp)).and(names)));
+			}
+			filter = changed;
+		}
+		return this.ldap.search()
+			.query(LdapQueryBuilder.query()
+				.base(GROUPS_OU)
+				.attributes("cn", "member", this.timestampAttribute)
+				.filter(filter))
+			.toList((AttributesMapper<GroupEntry>) (attributes) -> {
+				Set<LdapName> members = new HashSet<>();
+				Attribute member = attributes.get("member");
+				if (member != null) {
+					for (int i = 0; i < member.size(); i++) {
+						members.add(LdapUtils.newLdapName((String) member.get(i)));
+					}
+				}
+				Attribute timestamp = attributes.get(this.timestampAttribute);
+				return new GroupEntry((String) attributes.get("cn").get(), members,
+						(timestamp != null) ? parse((String) timestamp.get()) : null);
+			});
+	}
+
+	private Instant parse(String timestamp) {
+		try {
+			return GENERALIZED_TIME.parse(timestamp, Instant::from);
+		}
+		catch (DateTimeParseException ex) {
+			logger.warn("Ignoring " + this.timestampAttribute + " that is not a GeneralizedTime: " + timestamp);
+			return null;
+		}
+	}
+
+	private static final class GroupEntry {
+
+		private final String name;
+
+		private final Set<LdapName> members;
+
+		private final Instant timestamp;
+
+		GroupEntry(String name, Set<LdapName> members, Instant timestamp) {
+			this.name = name;
+			this.members = members;
+			this.timestamp = timestamp;
+		}
+
+	}
+
+}
@@ -16,13 +16,23 @@
 
 package org.springframework.ldap.samples.useradmin.domain.impl;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import javax.naming.Name;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.ModificationItem;
 import javax.naming.ldap.LdapName;
 
 import org.springframework.LdapDataEntry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.ldap.AttributeInUseException;
+import org.springframework.ldap.NameNotFoundException;
+import org.springframework.ldap.NamingException;
+import org.springframework.ldap.NoSuchAttributeException;
 import org.springframework.ldap.core.AttributesMapper;
 import org.springframework.ldap.core.DirContextAdapter;
 import org.springframework.ldap.core.LdapClient;
@@ -32,6 +42,7 @@ import org.springframework.ldap.query.LdapQuery;
 import org.springframework.ldap.query.LdapQueryBuilder;
 import org.springframework.ldap.samples.useradmin.domain.Group;
 import org.springframework.ldap.samples.useradmin.domain.GroupRepositoryExtension;
+import org.springframework.ldap.support.LdapNameBuilder;
 import org.springframework.ldap.support.LdapUtils;
 
 /**
@@ -41,6 +52,10 @@ import org.springframework.ldap.support.LdapUtils;
  */
 public class GroupRepositoryImpl implements GroupRepositoryExtension, BaseLdapNameAware {
 
+	private static final LdapName GROUPS_OU = LdapUtils.newLdapName("ou=Groups");
+
+	private static final String MEMBER_ATTRIBUTE = "member";
+
 	private static final LdapName ADMIN_USER = LdapUtils.newLdapName("cn=System,ou=System,ou=IT,ou=Departments");
 
 	private final LdapClient ldap;
@@ -49,6 +64,10 @@ public class GroupRepositoryImpl implements GroupRepositoryExtension, BaseLdapNa
 
 	private LdapName baseLdapPath;
 
+	private GroupMembershipIndex membershipIndex;
+
+	private EntryCache entryCache;
+
 	@Autowired
 	public GroupRepositoryImpl(LdapClient ldap, ObjectDirectoryMapper mapper) {
 		this.ldap = ldap;
@@ -60,6 +79,25 @@ public class GroupRepositoryImpl implements GroupRepositoryExtension, BaseLdapNa
 		this.baseLdapPath = baseLdapPath;
 	}
 
+	/**
+	 * Answer {@link #findGroupNamesByMember(Name)} from an in-memory index instead of a
+	 * {@code (member=...)} search, and keep the index current with the membership changes
+	 * made through this repository.
+	 * @param membershipIndex the index of group memberships
+	 */
+	public void setMembershipIndex(GroupMembershipIndex membershipIndex) {
+		this.membershipIndex = membershipIndex;
+	}
+
+	/**
+	 * Answer {@link #findByName(String)} from a cache of mapped entries, and evict the
+	 * groups changed through this repository from it.
+	 * @param entryCache the cache of users and groups
+	 */
+	public void setEntryCache(EntryCache entryCache) {
+		this.entryCache = entryCache;
+	}
+
 	@Override
 	public List<String> getAllGroupNames() {
 		LdapQuery query = LdapQueryBuilder.query().attributes("cn").where("objectclass").is("groupOfNames");
@@ -69,6 +107,24 @@ public class GroupRepositoryImpl implements GroupRepositoryExtension, BaseLdapNa
 			.toList((AttributesMapper<String>) (attributes) -> (String) attributes.get("cn").get());
 	}
 
+	@Override
+	public Group findByName(String groupName) {
+		Name groupDn = groupDn(groupName);
+		Optional<Group> group = (this.entryCache != null) ? this.entryCache.get(groupDn, Group.class, this::lookup)
+				: lookup(groupDn);
+		return group.orElse(null);
+	}
+
+	private Optional<Group> lookup(Name groupDn) {
+		try {
+			LdapDataEntry entry = this.ldap.search().name(groupDn).toEntry();
+			return Optional.of(this.mapper.mapFromLdapDataEntry(entry, Group.class));
+		}
+		catch (NameNotFoundException ex) {
+			return Optional.empty();
+		}
+	}
+
 	@Override
 	public void create(Group group) {
 		// A groupOfNames cannot be empty - add a system entry to all new groups.
@@ -77,6 +133,104 @@ public class GroupRepositoryImpl implements GroupRepositoryExtension, BaseLdapNa
 		LdapDataEntry entry = new DirContextAdapter(targetId);
 		this.mapper.mapToLdapDataEntry(group, entry);
 		this.ldap.bind(targetId).object(entry).execute();
+		evict(group.getName());
+		if (this.membershipIndex != null) {
+			this.membershipIndex.added(group.getName(), group.getMembers());
+		}
+	}
+
+	@Override
+	public Set<String> findGroupNamesByMember(Name member) {
+		if (this.membershipIndex != null) {
+			return this.membershipIndex.findGroupNames(member);
+		}
+		LdapQuery query = LdapQueryBuilder.query()
+			.base(GROUPS_OU)
+			.attributes("cn")
+			.where("objectclass")
+			.is("groupOfNames")
+			.and(MEMBER_ATTRIBUTE)
+			.is(member.toString());
+		return Set.copyOf(this.ldap.search()
+			.query(query)
+			.toList((AttributesMapper<String>) (attributes) -> (String) attributes.get("cn").get()));
+	}
+
+	@Override
+	public void addMembers(String groupName, Collection<Name> members) {
+		modifyMembers(groupName, members, DirContext.ADD_ATTRIBUTE, AttributeInUseException.class);
+	}
+
+	@Override
+	public void removeMembers(String groupName, Collection<Name> members) {
+		modifyMembers(groupName, members, DirContext.REMOVE_ATTRIBUTE, NoSuchAttributeException.class);
+	}
+
+	@Override
+	public void replaceMember(String groupName, Name oldMember, Name newMember) {
+		ModificationItem remove = new ModificationItem(DirContext.REMOVE_ATTRIBUTE,
+				new BasicAttribute(MEMBER_ATTRIBUTE, oldMember.toString()));
+		ModificationItem add = new ModificationItem(DirContext.ADD_ATTRIBUTE,
+				new BasicAttribute(MEMBER_ATTRIBUTE, newMember.toString()));
+		try {
+			this.ldap.modify(groupDn(groupName)).attributes(remove, add).execute();
+		}
+		catch (AttributeInUseException | NoSuchAttributeException ex) {
+			// Partly done already - add before remove so that the group is never empty.
+			addMembers(groupName, List.of(newMember));
+			removeMembers(groupName, List.of(oldMember));
+			return;
+		}
+		evict(groupName);
+		if (this.membershipIndex != null) {
+			this.membershipIndex.added(groupName, List.of(newMember));
+			this.membershipIndex.removed(groupName, List.of(oldMember));
+		}
+	}
+
+	private void evict(String groupName) {
+		if (this.entryCache != null) {
+			this.entryCache.evict(groupDn(groupName));
+		}
+	}
+
+	private static Name groupDn(String groupName) {
+		return LdapNameBuilder.newInstance(GROUPS_OU).add("cn", groupName).build();
+	}
+
+	// One modify with a value per member. The directory refuses the whole modify if
+	// any value is already added or removed, in which case each value is tried by itself.
+	private void modifyMembers(String groupName, Collection<Name> members, int operation,
+			Class<? extends NamingException> alreadyDone) {
+		if (members.isEmpty()) {
+			return;
+		}
+		Name groupDn = groupDn(groupName);
+		BasicAttribute values = new BasicAttribute(MEMBER_ATTRIBUTE);
+		members.forEach((member) -> values.add(member.toString()));
+		try {
+			this.ldap.modify(groupDn).attributes(new ModificationItem(operation, values)).execute();
+		}
+		catch (NamingException ex) {
+			if (!alreadyDone.isInstance(ex)) {
+				throw ex;
+			}
+			if (members.size() > 1) {
+				for (Name member : members) {
+					modifyMembers(groupName, List.of(member), operation, alreadyDone);
+				}
+				return;
+			}
+		}
+		evict(groupName);
+		if (this.membershipIndex != null) {
+			if (operation == DirContext.ADD_ATTRIBUTE) {
+				this.membershipIndex.added(groupName, members);
+			}
+			else {
+				this.membershipIndex.removed(groupName, members);
+			}
+		}
 	}
 
 }
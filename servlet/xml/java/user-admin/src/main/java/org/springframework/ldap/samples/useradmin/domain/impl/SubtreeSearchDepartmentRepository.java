@@ -0,0 +1,88 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.useradmin.domain.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.naming.ldap.LdapName;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.ldap.core.ContextMapper;
+import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.ldap.core.LdapClient;
+import org.springframework.ldap.query.LdapQuery;
+import org.springframework.ldap.query.LdapQueryBuilder;
+import org.springframework.ldap.query.SearchScope;
+import org.springframework.ldap.samples.useradmin.domain.DepartmentRepository;
+import org.springframework.ldap.support.LdapUtils;
+
+public class SubtreeSearchDepartmentRepository implements DepartmentRepository {
+
+	private static final LdapName DEPARTMENTS_OU = LdapUtils.newLdapName("ou=Departments");
+
+	private static final int DEPARTMENT_DEPTH = DEPARTMENTS_OU.size() + 1;
+
+	private static final int UNIT_DEPTH = DEPARTMENT_DEPTH + 1;
+
+	private final LdapClient ldap;
+
+	/**
+	 * Create a repository that reads all departments and units with one subtree search
+	 * for their {@code ou} values, where {@link DepartmentRepositoryImpl} lists the units
+	 * of each department separately.
+	 * @param ldap the client to search with
+	 */
+	@Autowired
+	public SubtreeSearchDepartmentRepository(LdapClient ldap) {
+		this.ldap = ldap;
+	}
+
+	@Override
+	public Map<String, List<String>> getDepartmentMap() {
+		LdapQuery query = LdapQueryBuilder.query()
+			.base(DEPARTMENTS_OU)
+			.searchScope(SearchScope.SUBTREE)
+			.attributes("ou")
+			.where("objectclass")
+			.is("organizationalUnit");
+
+		List<LdapName> names = this.ldap.search()
+			.query(query)
+			.toList((ContextMapper<LdapName>) (ctx) -> LdapUtils.newLdapName(((DirContextOperations) ctx).getDn()));
+
+		// The search returns departments and units in no particular order.
+		Map<String, List<String>> departments = new HashMap<>();
+		for (LdapName dn : names) {
+			if (dn.size() == DEPARTMENT_DEPTH) {
+				departments.computeIfAbsent(value(dn, DEPARTMENT_DEPTH), (name) -> new ArrayList<>());
+			}
+			else if (dn.size() == UNIT_DEPTH) {
+				departments.computeIfAbsent(value(dn, DEPARTMENT_DEPTH), (name) -> new ArrayList<>())
+					.add(value(dn, UNIT_DEPTH));
+			}
+		}
+		return departments;
+	}
+
+	private static String value(LdapName dn, int depth) {
+		return LdapUtils.getValue(dn, depth - 1).toString();
+	}
+
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.useradmin.domain.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+import javax.naming.Name;
+import javax.naming.NamingException;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.SearchControls;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
+import javax.naming.ldap.SortControl;
+import javax.naming.ldap.SortKey;
+import javax.naming.ldap.SortResponseControl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.ldap.NameNotFoundException;
+import org.springframework.ldap.control.AbstractRequestControlDirContextProcessor;
+import org.springframework.ldap.core.ContextMapper;
+import org.springframework.ldap.core.DirContextOperations;
+import org.springframework.ldap.core.LdapOperations;
+import org.springframework.ldap.filter.AndFilter;
+import org.springframework.ldap.filter.EqualsFilter;
+import org.springframework.ldap.filter.Filter;
+import org.springframework.ldap.filter.GreaterThanOrEqualsFilter;
+import org.springframework.ldap.filter.LessThanOrEqualsFilter;
+import org.springframework.ldap.filter.NotFilter;
+import org.springframework.ldap.filter.OrFilter;
+import org.springframework.ldap.odm.core.ObjectDirectoryMapper;
+import org.springframework.ldap.samples.useradmin.domain.User;
+import org.springframework.ldap.samples.useradmin.domain.UserPage;
+import org.springframework.ldap.samples.useradmin.domain.UserRepositoryExtension;
+import org.springframework.ldap.support.LdapUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * A set of methods that extend the {@link User} Spring Data repository.
+ *
+ * @author Mattias Hellborg Arthursson
+ */
+public class UserRepositoryImpl implements UserRepositoryExtension, InitializingBean, DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(UserRepositoryImpl.class);
+
+	private static final LdapName USERS_OU = LdapUtils.newLdapName("ou=Departments");
+
+	private static final String NAME_ATTRIBUTE = "cn";
+
+	private static final String NUMBER_ATTRIBUTE = "employeeNumber";
+
+	private static final String ORDERING_RULE = "caseIgnoreOrderingMatch";
+
+	private static final int SCAN_SIZE = 500;
+
+	private final LdapOperations ldap;
+
+	private final ObjectDirectoryMapper mapper;
+
+	private int batchSize = 100;
+
+	private int parallelism = 4;
+
+	private ExecutorService executor;
+
+	@Autowired
+	public UserRepositoryImpl(LdapOperations ldap, ObjectDirectoryMapper mapper) {
+		this.ldap = ldap;
+		this.mapper = mapper;
+	}
+
+	/**
+	 * The maximum number of ids to look up in one search in
+	 * {@link #findAllInBatches(Iterable)}. Default is 100.
+	 * @param batchSize the number of ids per search
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be positive");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * The maximum number of searches that {@link #findAllInBatches(Iterable)} runs at the
+	 * same time. Default is 4.
+	 * @param parallelism the number of concurrent searches
+	 */
+	public void setParallelism(int parallelism) {
+		Assert.isTrue(parallelism > 0, "parallelism must be positive");
+		this.parallelism = parallelism;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("user-batch-");
+		threadFactory.setDaemon(true);
+		this.executor = Executors.newFixedThreadPool(this.parallelism, threadFactory);
+	}
+
+	@Override
+	public void destroy() {
+		this.executor.shutdown();
+	}
+
+	/**
+	 * Users are ordered by full name and then by employee number, and a cursor is the
+	 * position of one user in that order. The directory sorts the entries and stops at
+	 * the count limit, so a page request asks for one entry more than the page size, only
+	 * to tell whether there is a next page. A cursor holds no server state and stays
+	 * valid while entries are added or removed around it; a cursor that cannot be read
+	 * gives the first page.
+	 * <p>
+	 * The standard schema defines no ordering rule for {@code cn} and
+	 * {@code employeeNumber}. The sort asks for {@code caseIgnoreOrderingMatch}
+	 * explicitly, but the {@code >=} and {@code <=} filters that skip to the cursor rely
+	 * on the directory falling back to a case-ignore ordering, as the embedded UnboundID
+	 * server does. Other directories need {@code ORDERING caseIgnoreOrderingMatch} added
+	 * to both attribute types. The sort control is not critical, so a directory that
+	 * cannot sort returns the entries in its own order and a warning is logged.
+	 */
+	@Override
+	public UserPage findPageAfter(String cursor, int pageSize) {
+		return findPageAfter(cursor, pageSize, null, null);
+	}
+
+	@Override
+	public UserPage findPageBefore(String cursor, int pageSize) {
+		return findPageBefore(cursor, pageSize, null, null);
+	}
+
+	/**
+	 * Entries that the filter selects but that are not included are skipped by reading
+	 * further in chunks of at least {@value #SCAN_SIZE} entries, so only one chunk is
+	 * held in memory at a time.
+	 */
+	@Override
+	public UserPage findPageAfter(String cursor, int pageSize, Filter filter, Predicate<User> include) {
+		String position = (decode(cursor) != null) ? cursor : null;
+		List<User> users = collect(position, false, pageSize + 1, filter, include);
+		boolean more = users.size() > pageSize;
+		List<User> page = more ? users.subList(0, pageSize) : users;
+
+		String previous = (position != null && !page.isEmpty()) ? toCursor(page.get(0)) : null;
+		String next = more ? toCursor(page.get(page.size() - 1)) : null;
+		return new UserPage(page, previous, next);
+	}
+
+	@Override
+	public UserPage findPageBefore(String cursor, int pageSize, Filter filter, Predicate<User> include) {
+		if (decode(cursor) == null) {
+			return findPageAfter(null, pageSize, filter, include);
+		}
+		List<User> users = collect(cursor, true, pageSize + 1, filter, include);
+		if (users.isEmpty()) {
+			// Everything before the cursor is gone - start over from the beginning.
+			return findPageAfter(null, pageSize, filter, include);
+		}
+		boolean more = users.size() > pageSize;
+		List<User> page = new ArrayList<>(more ? users.subList(0, pageSize) : users);
+		Collections.reverse(page);
+
+		String previous = more ? toCursor(page.get(0)) : null;
+		return new UserPage(page, previous, toCursor(page.get(page.size() - 1)));
+	}
+
+	// Up to limit users beyond the cursor that match the filter and are included.
+	private List<User> collect(String cursor, boolean reverse, int limit, Filter filter, Predicate<User> include) {
+		if (include == null) {
+			return search(and(beyond(cursor, reverse), filter), reverse, limit);
+		}
+		int chunkSize = Math.max(limit, SCAN_SIZE);
+		List<User> collected = new ArrayList<>(limit);
+		String position = cursor;
+		while (true) {
+			List<User> chunk = search(and(beyond(position, reverse), filter), reverse, chunkSize);
+			for (User user : chunk) {
+				if (include.test(user)) {
+					collected.add(user);
+					if (collected.size() == limit) {
+						return collected;
+					}
+				}
+			}
+			if (chunk.size() < chunkSize) {
+				return collected;
+			}
+			position = toCursor(chunk.get(chunk.size() - 1));
+		}
+	}
+
+	/**
+	 * The ids are grouped by parent entry and each group is split into batches of at most
+	 * {@code batchSize} ids. Every batch is one one-level search under the parent for
+	 * entries with any of the batch's RDNs, which works on any directory, unlike an
+	 * {@code entryDN} filter.
+	 */
+	@Override
+	public List<User> findAllInBatches(Iterable<Name> ids) {
+		Map<Name, List<Name>> idsByParent = new LinkedHashMap<>();
+		List<Name> order = new ArrayList<>();
+		for (Name id : ids) {
+			LdapName name = LdapUtils.newLdapName(id);
+			if (!name.isEmpty()) {
+				idsByParent.computeIfAbsent(name.getPrefix(name.size() - 1), (parent) -> new ArrayList<>()).add(name);
+				order.add(name);
+			}
+		}
+
+		List<CompletableFuture<List<User>>> batches = new ArrayList<>();
+		for (Map.Entry<Name, List<Name>> entry : idsByParent.entrySet()) {
+			List<Name> children = entry.getValue();
+			for (int from = 0; from < children.size(); from += this.batchSize) {
+				List<Name> batch = children.subList(from, Math.min(from + this.batchSize, children.size()));
+				batches.add(CompletableFuture.supplyAsync(() -> findBatch(entry.getKey(), batch), this.executor));
+			}
+		}
+
+		Map<Name, User> found = new HashMap<>();
+		for (CompletableFuture<List<User>> batch : batches) {
+			try {
+				batch.join().forEach((user) -> found.put(user.getId(), user));
+			}
+			catch (CompletionException ex) {
+				if (ex.getCause() instanceof RuntimeException cause) {
+					throw cause;
+				}
+				throw ex;
+			}
+		}
+
+		List<User> users = new ArrayList<>(found.size());
+		for (Name id : order) {
+			User user = found.remove(id);
+			if (user != null) {
+				users.add(user);
+			}
+		}
+		return users;
+	}
+
+	private List<User> findBatch(Name parent, List<Name> batch) {
+		OrFilter anyOf = new OrFilter();
+		for (Name id : batch) {
+			Rdn rdn = LdapUtils.newLdapName(id).getRdn(id.size() - 1);
+			anyOf.or(new EqualsFilter(rdn.getType(), rdn.getValue().toString()));
+		}
+		SearchControls controls = new SearchControls();
+		controls.setSearchScope(SearchControls.ONELEVEL_SCOPE);
+
+		Set<Name> wanted = Set.copyOf(batch);
+		try {
+			return this.ldap
+				.search(parent, this.mapper.filterFor(User.class, anyOf).encode(), controls,
+						(ContextMapper<User>) (ctx) -> this.mapper.mapFromLdapDataEntry((DirContextOperations) ctx,
+								User.class))
+				.stream()
+				// A multi-valued naming attribute may match entries with another RDN
+				.filter((user) -> wanted.contains(user.getId()))
+				.toList();
+		}
+		catch (NameNotFoundException ex) {
+			return List.of();
+		}
+	}
+
+	private List<User> search(Filter filter, boolean reverse, int limit) {
+		SearchControls controls = new SearchControls();
+		controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+		controls.setCountLimit(limit);
+
+		List<User> users = this.ldap.search(USERS_OU, this.mapper.filterFor(User.class, filter).encode(), controls,
+				(ContextMapper<User>) (ctx) -> this.mapper.mapFromLdapDataEntry((DirContextOperations) ctx, User.class),
+				new SortDirContextProcessor(reverse));
+		return (users.size() > limit) ? users.subList(0, limit) : users;
+	}
+
+	private static Filter and(Filter first, Filter second) {
+		if (first == null || second == null) {
+			return (first != null) ? first : second;
+		}
+		return new AndFilter().and(first).and(second);
+	}
+
+	// The entries strictly after - or before - the position of the cursor.
+	private static Filter beyond(String cursor, boolean before) {
+		String[] position = decode(cursor);
+		if (position == null) {
+			return null;
+		}
+		String number = position[0];
+		String name = position[1];
+
+		return new OrFilter()
+			.or(new AndFilter().and(compare(NAME_ATTRIBUTE, name, before))
+				.and(new NotFilter(new EqualsFilter(NAME_ATTRIBUTE, name))))
+			.or(new AndFilter().and(new EqualsFilter(NAME_ATTRIBUTE, name))
+				.and(compare(NUMBER_ATTRIBUTE, number, before))
+				.and(new NotFilter(new EqualsFilter(NUMBER_ATTRIBUTE, number))));
+	}
+
+	private static Filter compare(String attribute, String value, boolean before) {
+		return before ? new LessThanOrEqualsFilter(attribute, value) : new GreaterThanOrEqualsFilter(attribute, value);
+	}
+
+	// The employee number and full name in a cursor, or null if it was not made by
+	// toCursor.
+	private static String[] decode(String cursor) {
+		if (cursor == null) {
+			return null;
+		}
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			int separator = decoded.indexOf(':');
+			if (separator < 1 || separator == decoded.length() - 1) {
+				return null;
+			}
+			return new String[] { decoded.substring(0, separator), decoded.substring(separator + 1) };
+		}
+		catch (IllegalArgumentException ex) {
+			return null;
+		}
+	}
+
+	private static String toCursor(User user) {
+		String position = user.getEmployeeNumber() + ":" + user.getFullName();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static final class SortDirContextProcessor extends AbstractRequestControlDirContextProcessor {
+
+		private final boolean reverse;
+
+		SortDirContextProcessor(boolean reverse) {
+			this.reverse = reverse;
+		}
+
+		@Override
+		public Control createRequestControl() {
+			SortKey[] keys = { new SortKey(NAME_ATTRIBUTE, !this.reverse, ORDERING_RULE),
+					new SortKey(NUMBER_ATTRIBUTE, !this.reverse, ORDERING_RULE) };
+			try {
+				return new SortControl(keys, Control.NONCRITICAL);
+			}
+			catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		@Override
+		public void postProcess(DirContext ctx) throws NamingException {
+			Control[] controls = ((LdapContext) ctx).getResponseControls();
+			if (controls != null) {
+				for (Control control : controls) {
+					if (control instanceof SortResponseControl response && response.isSorted()) {
+						return;
+					}
+				}
+			}
+			logger.warn("The directory did not sort the users, so pages may skip or repeat users");
+		}
+
+	}
+
+}
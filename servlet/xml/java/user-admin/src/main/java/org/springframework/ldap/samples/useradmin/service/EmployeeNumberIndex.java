@@ -0,0 +1,218 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.useradmin.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.naming.Name;
+import javax.naming.ldap.LdapName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.ldap.samples.useradmin.domain.User;
+import org.springframework.ldap.samples.useradmin.domain.UserRepository;
+
+public class EmployeeNumberIndex implements SmartInitializingSingleton {
+
+	private static final Log logger = LogFactory.getLog(EmployeeNumberIndex.class);
+
+	// Marks a number the load found with another user than add() did; it is searched
+	// for until a search finds a single user with it.
+	private static final Name AMBIGUOUS = new LdapName(List.of());
+
+	private final UserRepository users;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	// Open addressing with linear probing. A used slot keeps its key when the user is
+	// removed, with a null id, so that probing never has to skip over deleted slots.
+	private int[] keys = new int[1024];
+
+	private Name[] ids = new Name[1024];
+
+	private boolean[] used = new boolean[1024];
+
+	private int size;
+
+	/**
+	 * Create an index from employee number to the id of the user. It is filled in the
+	 * background once the application context has started and kept current by
+	 * {@link UserService}; numbers that are not in the index, or whose user has another
+	 * number by now, are searched for in the directory.
+	 * @param users the repository to load and read the users with
+	 */
+	public EmployeeNumberIndex(UserRepository users) {
+		this.users = users;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		Thread loader = new Thread(this::load, "employee-number-index");
+		loader.setDaemon(true);
+		loader.start();
+	}
+
+	private void load() {
+		try {
+			long start = System.nanoTime();
+			int count = 0;
+			for (User user : this.users.findAll()) {
+				// Users added or changed through add() while loading are more recent.
+				synchronized (this) {
+					if (get(user.getEmployeeNumber()) == null) {
+						put(user.getEmployeeNumber(), user.getId());
+					}
+					else if (!user.getId().equals(get(user.getEmployeeNumber()))) {
+						put(user.getEmployeeNumber(), AMBIGUOUS);
+					}
+				}
+				count++;
+			}
+			if (logger.isInfoEnabled()) {
+				logger.info("Indexed the employee numbers of " + count + " users in "
+						+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+			}
+		}
+		catch (RuntimeException ex) {
+			logger.warn("Could not load the employee number index, lookups will search the directory", ex);
+		}
+	}
+
+	/**
+	 * Find the user with an employee number. A number in the index is read with one
+	 * lookup of the user's entry; others with a search of all users.
+	 * @param employeeNumber the employee number
+	 * @return the user, or empty if no user has the number
+	 */
+	public Optional<User> findByEmployeeNumber(int employeeNumber) {
+		Name id;
+		synchronized (this) {
+			id = get(employeeNumber);
+		}
+		if (id != null && id != AMBIGUOUS) {
+			Optional<User> user = this.users.findById(id)
+				.filter((found) -> found.getEmployeeNumber() == employeeNumber);
+			if (user.isPresent()) {
+				this.hits.increment();
+				return user;
+			}
+		}
+		this.misses.increment();
+		// Fails if more than one user has the number, so a found user is the only one.
+		User user = this.users.findByEmployeeNumber(employeeNumber);
+		if (user != null) {
+			synchronized (this) {
+				put(employeeNumber, user.getId());
+			}
+		}
+		return Optional.ofNullable(user);
+	}
+
+	/**
+	 * Add a user to the index, replacing the user with the same number.
+	 * @param user the user to index
+	 */
+	public synchronized void add(User user) {
+		put(user.getEmployeeNumber(), user.getId());
+	}
+
+	/**
+	 * Remove a user from the index, if the number still belongs to it.
+	 * @param user the user to remove
+	 */
+	public synchronized void remove(User user) {
+		if (user.getId().equals(get(user.getEmployeeNumber()))) {
+			put(user.getEmployeeNumber(), null);
+		}
+	}
+
+	/**
+	 * The number of lookups answered with the user's entry from the index.
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * The number of lookups that had to search the directory.
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	private Name get(int key) {
+		int mask = this.keys.length - 1;
+		for (int slot = mix(key) & mask; this.used[slot]; slot = (slot + 1) & mask) {
+			if (this.keys[slot] == key) {
+				return this.ids[slot];
+			}
+		}
+		return null;
+	}
+
+	private void put(int key, Name id) {
+		int mask = this.keys.length - 1;
+		int slot = mix(key) & mask;
+		while (this.used[slot]) {
+			if (this.keys[slot] == key) {
+				this.ids[slot] = id;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (id == null) {
+			return;
+		}
+		this.keys[slot] = key;
+		this.ids[slot] = id;
+		this.used[slot] = true;
+		if (++this.size > this.keys.length / 2) {
+			grow();
+		}
+	}
+
+	private void grow() {
+		int[] oldKeys = this.keys;
+		Name[] oldIds = this.ids;
+		boolean[] oldUsed = this.used;
+		this.keys = new int[oldKeys.length * 2];
+		this.ids = new Name[oldKeys.length * 2];
+		this.used = new boolean[oldKeys.length * 2];
+		this.size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i] && oldIds[i] != null) {
+				put(oldKeys[i], oldIds[i]);
+			}
+		}
+	}
+
+	// Employee numbers are mostly consecutive; spread them over the table.
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
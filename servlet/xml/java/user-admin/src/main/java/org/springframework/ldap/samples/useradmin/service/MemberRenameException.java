@@ -0,0 +1,37 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.useradmin.service;
+
+public class MemberRenameException extends RuntimeException {
+
+	private final transient MemberRenameSummary summary;
+
+	/**
+	 * Create an exception for a rename that left some groups pointing to the old member.
+	 * The cause is the failure of the first of those groups.
+	 * @param summary the summary of the rename, with at least one failure
+	 */
+	public MemberRenameException(MemberRenameSummary summary) {
+		super(summary.toString(), summary.getFailures().get(0).getFailure());
+		this.summary = summary;
+	}
+
+	public MemberRenameSummary getSummary() {
+		return this.summary;
+	}
+
+}
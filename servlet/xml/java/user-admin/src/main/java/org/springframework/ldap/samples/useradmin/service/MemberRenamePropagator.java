@@ -0,0 +1,162 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.useradmin.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.naming.Name;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.ldap.CommunicationException;
+import org.springframework.ldap.ServiceUnavailableException;
+import org.springframework.ldap.TimeLimitExceededException;
+import org.springframework.ldap.samples.useradmin.domain.GroupRepository;
+import org.springframework.ldap.samples.useradmin.service.MemberRenameSummary.GroupResult;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+public class MemberRenamePropagator implements InitializingBean, DisposableBean {
+
+	private final GroupRepository groups;
+
+	private int parallelism = 8;
+
+	private int maxAttempts = 3;
+
+	private long retryDelayMillis = 100;
+
+	private ExecutorService executor;
+
+	/**
+	 * Create a propagator that updates the member references of several groups at the
+	 * same time, each with one {@link GroupRepository#replaceMember replaceMember}
+	 * modify.
+	 * @param groups the repository to modify the groups with
+	 */
+	public MemberRenamePropagator(GroupRepository groups) {
+		this.groups = groups;
+	}
+
+	/**
+	 * The maximum number of groups to modify at the same time; use a connection pool of
+	 * at least this size. Default is 8.
+	 * @param parallelism the number of concurrent modifications
+	 */
+	public void setParallelism(int parallelism) {
+		Assert.isTrue(parallelism > 0, "parallelism must be positive");
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * The number of times to try each group before giving up. Only failures that may go
+	 * away by themselves, such as a lost connection or a busy server, are retried.
+	 * Default is 3.
+	 * @param maxAttempts the attempts per group
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		Assert.isTrue(maxAttempts > 0, "maxAttempts must be positive");
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * The time to wait before the first retry of a group; it grows linearly with each
+	 * further attempt. Default is 100 ms.
+	 * @param retryDelayMillis the delay in milliseconds
+	 */
+	public void setRetryDelayMillis(long retryDelayMillis) {
+		this.retryDelayMillis = retryDelayMillis;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("member-rename-");
+		threadFactory.setDaemon(true);
+		this.executor = Executors.newFixedThreadPool(this.parallelism, threadFactory);
+	}
+
+	@Override
+	public void destroy() {
+		this.executor.shutdown();
+	}
+
+	/**
+	 * Replace a member with another in all the given groups. A group that cannot be
+	 * updated does not stop the others; it is retried if the failure is transient and, if
+	 * it keeps failing, reported in the summary.
+	 * @param groupNames the names of the groups the old member belongs to
+	 * @param oldMember the absolute DN of the old member
+	 * @param newMember the absolute DN of the new member
+	 * @return the outcome and the time spent for every group
+	 */
+	public MemberRenameSummary renameMember(Collection<String> groupNames, Name oldMember, Name newMember) {
+		long start = System.nanoTime();
+		List<CompletableFuture<GroupResult>> updates = new ArrayList<>(groupNames.size());
+		for (String groupName : groupNames) {
+			updates.add(CompletableFuture.supplyAsync(() -> replace(groupName, oldMember, newMember), this.executor));
+		}
+		List<GroupResult> results = updates.stream().map(CompletableFuture::join).toList();
+		return new MemberRenameSummary(oldMember, newMember, results, Duration.ofNanos(System.nanoTime() - start));
+	}
+
+	private GroupResult replace(String groupName, Name oldMember, Name newMember) {
+		long start = System.nanoTime();
+		RuntimeException failure = null;
+		int attempt = 0;
+		while (attempt < this.maxAttempts) {
+			attempt++;
+			try {
+				this.groups.replaceMember(groupName, oldMember, newMember);
+				return new GroupResult(groupName, Duration.ofNanos(System.nanoTime() - start), attempt, null);
+			}
+			catch (RuntimeException ex) {
+				failure = ex;
+				if (!isTransient(ex)) {
+					break;
+				}
+			}
+			if (attempt < this.maxAttempts && !pause(attempt)) {
+				break;
+			}
+		}
+		return new GroupResult(groupName, Duration.ofNanos(System.nanoTime() - start), attempt, failure);
+	}
+
+	private static boolean isTransient(RuntimeException ex) {
+		return ex instanceof CommunicationException || ex instanceof ServiceUnavailableException
+				|| ex instanceof TimeLimitExceededException;
+	}
+
+	// Wait before the next attempt; false if interrupted.
+	private boolean pause(int attempt) {
+		try {
+			Thread.sleep(this.retryDelayMillis * attempt);
+			return true;
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+}
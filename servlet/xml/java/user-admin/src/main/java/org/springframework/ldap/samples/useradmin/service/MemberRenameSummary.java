@@ -0,0 +1,141 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.useradmin.service;
+
+import java.time.Duration;
+import java.util.List;
+
+import javax.naming.Name;
+
+public final class MemberRenameSummary {
+
+	private final Name oldMember;
+
+	private final Name newMember;
+
+	private final List<GroupResult> results;
+
+	private final Duration elapsed;
+
+	MemberRenameSummary(Name oldMember, Name newMember, List<GroupResult> results, Duration elapsed) {
+		this.oldMember = oldMember;
+		this.newMember = newMember;
+		this.results = List.copyOf(results);
+		this.elapsed = elapsed;
+	}
+
+	public Name getOldMember() {
+		return this.oldMember;
+	}
+
+	public Name getNewMember() {
+		return this.newMember;
+	}
+
+	public List<GroupResult> getResults() {
+		return this.results;
+	}
+
+	public List<GroupResult> getFailures() {
+		return this.results.stream().filter((result) -> !result.isSuccessful()).toList();
+	}
+
+	public boolean isSuccessful() {
+		return getFailures().isEmpty();
+	}
+
+	/**
+	 * The wall-clock time for updating all groups.
+	 * @return the total elapsed time
+	 */
+	public Duration getElapsed() {
+		return this.elapsed;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder summary = new StringBuilder().append("Renamed ")
+			.append(this.oldMember)
+			.append(" to ")
+			.append(this.newMember)
+			.append(" in ")
+			.append(this.results.size() - getFailures().size())
+			.append(" of ")
+			.append(this.results.size())
+			.append(" groups in ")
+			.append(this.elapsed.toMillis())
+			.append(" ms");
+		for (GroupResult result : this.results) {
+			summary.append(System.lineSeparator()).append("  ").append(result);
+		}
+		return summary.toString();
+	}
+
+	public static final class GroupResult {
+
+		private final String groupName;
+
+		private final Duration elapsed;
+
+		private final int attempts;
+
+		private final RuntimeException failure;
+
+		GroupResult(String groupName, Duration elapsed, int attempts, RuntimeException failure) {
+			this.groupName = groupName;
+			this.elapsed = elapsed;
+			this.attempts = attempts;
+			this.failure = failure;
+		}
+
+		public String getGroupName() {
+			return this.groupName;
+		}
+
+		/**
+		 * The time spent on this group, including retries.
+		 * @return the elapsed time
+		 */
+		public Duration getElapsed() {
+			return this.elapsed;
+		}
+
+		public int getAttempts() {
+			return this.attempts;
+		}
+
+		/**
+		 * The exception of the last attempt, if all attempts failed.
+		 * @return the failure, or {@code null} if the group was updated
+		 */
+		public RuntimeException getFailure() {
+			return this.failure;
+		}
+
+		public boolean isSuccessful() {
+			return this.failure == null;
+		}
+
+		@Override
+		public String toString() {
+			return this.groupName + ": " + this.elapsed.toMillis() + " ms, " + this.attempts + " attempt(s)"
+					+ ((this.failure != null) ? ", failed: " + this.failure.getMessage() : "");
+		}
+
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.useradmin.service;
+
+import javax.naming.Name;
+
+public final class UserImportResult {
+
+	private final int recordNumber;
+
+	private final Name userId;
+
+	private final String failure;
+
+	private UserImportResult(int recordNumber, Name userId, String failure) {
+		this.recordNumber = recordNumber;
+		this.userId = userId;
+		this.failure = failure;
+	}
+
+	static UserImportResult created(int recordNumber, Name userId) {
+		return new UserImportResult(recordNumber, userId, null);
+	}
+
+	static UserImportResult failed(int recordNumber, Name userId, String failure) {
+		return new UserImportResult(recordNumber, userId, failure);
+	}
+
+	/**
+	 * The position of the record in the import, starting at 1; the header of a CSV import
+	 * is not counted.
+	 * @return the record number
+	 */
+	public int getRecordNumber() {
+		return this.recordNumber;
+	}
+
+	/**
+	 * The id of the user the record was created as.
+	 * @return the id, or {@code null} if the user was not created
+	 */
+	public Name getUserId() {
+		return this.userId;
+	}
+
+	/**
+	 * Why the record was not imported, or not completely.
+	 * @return the failure message, or {@code null} if the user was created
+	 */
+	public String getFailure() {
+		return this.failure;
+	}
+
+	public boolean isCreated() {
+		return this.failure == null;
+	}
+
+	@Override
+	public String toString() {
+		return this.recordNumber + "\t" + (isCreated() ? "CREATED" : "FAILED") + "\t"
+				+ ((this.userId != null) ? this.userId : "") + ((this.failure != null) ? "\t" + this.failure : "");
+	}
+
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.useradmin.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import javax.naming.Name;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.ldap.LdapName;
+
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldif.LDIFException;
+import com.unboundid.ldif.LDIFReader;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.ldap.core.DirContextAdapter;
+import org.springframework.ldap.core.support.BaseLdapNameAware;
+import org.springframework.ldap.odm.core.ObjectDirectoryMapper;
+import org.springframework.ldap.samples.useradmin.domain.GroupRepository;
+import org.springframework.ldap.samples.useradmin.domain.User;
+import org.springframework.ldap.samples.useradmin.domain.impl.EmployeeNumberAllocator;
+import org.springframework.ldap.support.LdapUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+public class UserImporter implements InitializingBean, DisposableBean, BaseLdapNameAware {
+
+	private static final Set<String> CSV_COLUMNS = Set.of("fullName", "firstName", "lastName", "email", "phone",
+			"title", "department", "unit", "employeeNumber");
+
+	private static final String EMPLOYEE_NUMBER = "employeeNumber";
+
+	private final UserService userService;
+
+	private final ObjectDirectoryMapper mapper;
+
+	private EmployeeNumberAllocator employeeNumbers;
+
+	private LdapName baseLdapPath;
+
+	private int parallelism = 8;
+
+	private int batchSize = 500;
+
+	private ExecutorService executor;
+
+	/**
+	 * Create an importer that creates the users of a CSV or LDIF stream concurrently, and
+	 * adds them to the {@link GroupRepository#USER_GROUP} group a batch at a time.
+	 * @param userService the service to create the users and add them to the group with
+	 * @param mapper the mapper to map LDIF entries to users with
+	 */
+	public UserImporter(UserService userService, ObjectDirectoryMapper mapper) {
+		this.userService = userService;
+		this.mapper = mapper;
+	}
+
+	/**
+	 * Give the users of records without an employee number the next number from this
+	 * allocator.
+	 * @param employeeNumbers the allocator of employee numbers
+	 */
+	public void setEmployeeNumberAllocator(EmployeeNumberAllocator employeeNumbers) {
+		this.employeeNumbers = employeeNumbers;
+	}
+
+	/**
+	 * The maximum number of users to create at the same time; use a connection pool of at
+	 * least this size. Default is 8.
+	 * @param parallelism the number of concurrent creations
+	 */
+	public void setParallelism(int parallelism) {
+		Assert.isTrue(parallelism > 0, "parallelism must be positive");
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * How many created users to add to the user group with one modify. Default is 500.
+	 * @param batchSize the number of members per modify
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be positive");
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public void setBaseLdapPath(LdapName baseLdapPath) {
+		this.baseLdapPath = baseLdapPath;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("user-import-");
+		threadFactory.setDaemon(true);
+		this.executor = Executors.newFixedThreadPool(this.parallelism, threadFactory);
+	}
+
+	@Override
+	public void destroy() {
+		this.executor.shutdown();
+	}
+
+	/**
+	 * Import users from CSV. The first line names the columns, which are {@link User}
+	 * properties: {@code fullName}, {@code firstName}, {@code lastName}, {@code email},
+	 * {@code phone}, {@code title}, {@code department}, {@code unit} and
+	 * {@code employeeNumber}. Fields may be quoted, with {@code ""} for a quote in them,
+	 * but cannot span lines. Users without an employee number get one from the allocator.
+	 * @param csv the CSV, read as the records are imported
+	 * @param results receives the result of every record as soon as it is known; a user
+	 * is reported as created once it was added to the user group
+	 * @throws IOException if reading the CSV fails
+	 * @throws IllegalArgumentException if the header names an unknown column
+	 */
+	public void importCsv(Reader csv, Consumer<UserImportResult> results) throws IOException {
+		BufferedReader reader = new BufferedReader(csv);
+		String header = reader.readLine();
+		if (header == null) {
+			return;
+		}
+		List<String> columns = fields(header).stream().map(String::trim).toList();
+		for (String column : columns) {
+			Assert.isTrue(CSV_COLUMNS.contains(column), () -> "Unknown column '" + column + "'");
+		}
+
+		ImportRun run = new ImportRun(results);
+		try {
+			int recordNumber = 0;
+			for (String line = reader.readLine(); line != null && !run.isAborted(); line = reader.readLine()) {
+				if (line.isBlank()) {
+					continue;
+				}
+				recordNumber++;
+				try {
+					run.submit(recordNumber, toUser(columns, fields(line)));
+				}
+				catch (RuntimeException ex) {
+					run.failed(recordNumber, ex);
+				}
+			}
+		}
+		finally {
+			run.finish();
+		}
+	}
+
+	/**
+	 * Import users from LDIF. The entries are mapped like users read from the directory,
+	 * so they need the object classes of a {@link User}, and the full name, unit and
+	 * department come from the DN, which may be absolute or relative to the base. Users
+	 * without an employee number get one from the allocator.
+	 * @param ldif the LDIF, read as the records are imported
+	 * @param results receives the result of every record as soon as it is known; a user
+	 * is reported as created once it was added to the user group
+	 * @throws IOException if reading the LDIF fails
+	 */
+	public void importLdif(InputStream ldif, Consumer<UserImportResult> results) throws IOException {
+		LDIFReader reader = new LDIFReader(ldif);
+		ImportRun run = new ImportRun(results);
+		try {
+			int recordNumber = 0;
+			while (!run.isAborted()) {
+				Entry entry;
+				try {
+					entry = reader.readEntry();
+				}
+				catch (LDIFException ex) {
+					run.failed(++recordNumber, ex);
+					if (ex.mayContinueReading()) {
+						continue;
+					}
+					break;
+				}
+				if (entry == null) {
+					break;
+				}
+				recordNumber++;
+				try {
+					run.submit(recordNumber, toUser(entry));
+				}
+				catch (RuntimeException ex) {
+					run.failed(recordNumber, ex);
+				}
+			}
+		}
+		finally {
+			run.finish();
+		}
+	}
+
+	private User toUser(List<String> columns, List<String> values) {
+		Assert.isTrue(values.size() == columns.size(),
+				() -> "Expected " + columns.size() + " fields, found " + values.size());
+		User user = new User();
+		BeanWrapper properties = PropertyAccessorFactory.forBeanPropertyAccess(user);
+		boolean numbered = false;
+		for (int i = 0; i < columns.size(); i++) {
+			String value = values.get(i).trim();
+			if (!value.isEmpty()) {
+				properties.setPropertyValue(columns.get(i), value);
+				numbered |= columns.get(i).equals(EMPLOYEE_NUMBER);
+			}
+		}
+		if (!numbered) {
+			assignEmployeeNumber(user);
+		}
+		return user;
+	}
+
+	private User toUser(Entry entry) {
+		LdapName dn = LdapUtils.newLdapName(entry.getDN());
+		if (this.baseLdapPath != null && dn.startsWith(this.baseLdapPath)) {
+			dn = LdapUtils.removeFirst(dn, this.baseLdapPath);
+		}
+		BasicAttributes attributes = new BasicAttributes(true);
+		for (Attribute attribute : entry.getAttributes()) {
+			BasicAttribute values = new BasicAttribute(attribute.getName());
+			for (String value : attribute.getValues()) {
+				values.add(value);
+			}
+			attributes.put(values);
+		}
+		User user = this.mapper.mapFromLdapDataEntry(new DirContextAdapter(attributes, dn), User.class);
+		Assert.notNull(user, () -> "Not a user entry: " + entry.getDN());
+		// Created like a new user, with the DN calculated from the mapped attributes.
+		user.setId((Name) null);
+		if (!entry.hasAttribute(EMPLOYEE_NUMBER)) {
+			assignEmployeeNumber(user);
+		}
+		return user;
+	}
+
+	private void assignEmployeeNumber(User user) {
+		if (this.employeeNumbers != null) {
+			user.setEmployeeNumber(this.employeeNumbers.next());
+		}
+	}
+
+	// Split a CSV line into its fields.
+	private static List<String> fields(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		int i = 0;
+		while (i < line.length()) {
+			char c = line.charAt(i);
+			if (quoted && c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+				field.append('"');
+				i++;
+			}
+			else if (c == '"') {
+				quoted = !quoted;
+			}
+			else if (c == ',' && !quoted) {
+				fields.add(field.toString());
+				field.setLength(0);
+			}
+			else {
+				field.append(c);
+			}
+			i++;
+		}
+		Assert.isTrue(!quoted, "Unterminated quoted field");
+		fields.add(field.toString());
+		return fields;
+	}
+
+	// Some exceptions, like a NullPointerException, have no message.
+	private static String message(Exception ex) {
+		return (ex.getMessage() != null) ? ex.getMessage() : ex.toString();
+	}
+
+	// The users of one import: created by the executor with a bounded number in flight,
+	// and added to the user group a batch at a time. Results are reported one at a time.
+	private final class ImportRun {
+
+		private final Consumer<UserImportResult> results;
+
+		private final int permits = UserImporter.this.parallelism * 2;
+
+		private final Semaphore inFlight = new Semaphore(this.permits);
+
+		private final Map<Integer, User> created = new LinkedHashMap<>();
+
+		private volatile boolean aborted;
+
+		ImportRun(Consumer<UserImportResult> results) {
+			this.results = results;
+		}
+
+		boolean isAborted() {
+			return this.aborted;
+		}
+
+		void submit(int recordNumber, User user) {
+			this.inFlight.acquireUninterruptibly();
+			try {
+				UserImporter.this.executor.execute(() -> {
+					try {
+						created(recordNumber, UserImporter.this.userService.saveNewUser(user));
+					}
+					catch (RuntimeException ex) {
+						failed(recordNumber, ex);
+					}
+					finally {
+						this.inFlight.release();
+					}
+				});
+			}
+			catch (RejectedExecutionException ex) {
+				this.inFlight.release();
+				throw ex;
+			}
+		}
+
+		synchronized void created(int recordNumber, User user) {
+			this.created.put(recordNumber, user);
+			if (this.created.size() >= UserImporter.this.batchSize) {
+				flush();
+			}
+		}
+
+		synchronized void failed(int recordNumber, Exception ex) {
+			report(UserImportResult.failed(recordNumber, null, message(ex)));
+		}
+
+		// Wait for the users in flight, then add the last batch to the group.
+		void finish() {
+			this.inFlight.acquireUninterruptibly(this.permits);
+			synchronized (this) {
+				flush();
+			}
+		}
+
+		private void flush() {
+			if (this.created.isEmpty()) {
+				return;
+			}
+			RuntimeException failure = null;
+			try {
+				UserImporter.this.userService.addToUserGroup(new ArrayList<>(this.created.values()));
+			}
+			catch (RuntimeException ex) {
+				failure = ex;
+			}
+			for (Map.Entry<Integer, User> user : this.created.entrySet()) {
+				Integer recordNumber = user.getKey();
+				report((failure != null)
+						? UserImportResult.failed(recordNumber, user.getValue().getId(),
+								"Entry created, but not added to " + GroupRepository.USER_GROUP + ": "
+										+ message(failure))
+						: UserImportResult.created(recordNumber, user.getValue().getId()));
+			}
+			this.created.clear();
+		}
+
+		// A failing receiver, like a client that went away, stops the import.
+		private void report(UserImportResult result) {
+			if (this.aborted) {
+				return;
+			}
+			try {
+				this.results.accept(result);
+			}
+			catch (RuntimeException ex) {
+				this.aborted = true;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2005-2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ldap.samples.useradmin.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.Name;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.ldap.samples.useradmin.domain.User;
+import org.springframework.ldap.samples.useradmin.domain.UserRepository;
+
+public class UserSearchIndex implements SmartInitializingSingleton {
+
+	private static final Log logger = LogFactory.getLog(UserSearchIndex.class);
+
+	private static final int GRAM_LENGTH = 3;
+
+	private final UserRepository users;
+
+	private final Map<Name, User> usersById = new ConcurrentHashMap<>();
+
+	private final Map<String, Set<Name>> idsByGram = new ConcurrentHashMap<>();
+
+	private final CountDownLatch loaded = new CountDownLatch(1);
+
+	/**
+	 * Create an index of the full names, email addresses and employee numbers of all
+	 * users. The users are read in the background once the application context has
+	 * started; until then {@link #isLoaded()} is {@code false}.
+	 * @param users the repository to load the users from
+	 */
+	public UserSearchIndex(UserRepository users) {
+		this.users = users;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		Thread loader = new Thread(this::load, "user-search-index");
+		loader.setDaemon(true);
+		loader.start();
+	}
+
+	private void load() {
+		try {
+			long start = System.nanoTime();
+			int count = 0;
+			for (User user : this.users.findAll()) {
+				// Users added or changed through add() while loading are more recent.
+				if (this.usersById.putIfAbsent(user.getId(), user) == null) {
+					indexGrams(user);
+				}
+				count++;
+			}
+			this.loaded.countDown();
+			if (logger.isInfoEnabled()) {
+				logger.info("Indexed " + count + " users in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+						+ " ms");
+			}
+		}
+		catch (RuntimeException ex) {
+			logger.warn("Could not load the user search index, searches will go to the directory", ex);
+		}
+	}
+
+	public boolean isLoaded() {
+		return this.loaded.getCount() == 0;
+	}
+
+	/**
+	 * Wait for the background load to finish.
+	 * @param timeout the maximum time to wait
+	 * @param unit the unit of the timeout
+	 * @return whether the index was loaded before the timeout
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean awaitLoaded(long timeout, TimeUnit unit) throws InterruptedException {
+		return this.loaded.await(timeout, unit);
+	}
+
+	/**
+	 * Add a user to the index, replacing any user with the same id.
+	 * @param user the user to index
+	 */
+	public void add(User user) {
+		remove(user.getId());
+		this.usersById.put(user.getId(), user);
+		indexGrams(user);
+	}
+
+	/**
+	 * Remove a user from the index.
+	 * @param id the id of the user to remove
+	 */
+	public void remove(Name id) {
+		User removed = this.usersById.remove(id);
+		if (removed != null) {
+			for (String gram : grams(removed)) {
+				this.idsByGram.computeIfPresent(gram, (key, ids) -> {
+					ids.remove(id);
+					return ids.isEmpty() ? null : ids;
+				});
+			}
+		}
+	}
+
+	/**
+	 * Find the users whose full name, email address or employee number contains the given
+	 * text, ignoring case. Texts of at least three characters are looked up by their
+	 * trigrams, and only the users that have all of them are compared.
+	 * @param text the text to search for
+	 * @return the matching users, sorted by full name
+	 */
+	public List<User> search(String text) {
+		String query = text.toLowerCase(Locale.ROOT);
+		List<User> matches = new ArrayList<>();
+		for (User user : candidates(query)) {
+			if (matches(user, query)) {
+				matches.add(user);
+			}
+		}
+		matches.sort(Comparator.comparing(User::getFullName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+		return matches;
+	}
+
+	private Iterable<User> candidates(String query) {
+		if (query.length() < GRAM_LENGTH) {
+			return this.usersById.values();
+		}
+		Set<Name> smallest = null;
+		for (int i = 0; i + GRAM_LENGTH <= query.length(); i++) {
+			Set<Name> ids = this.idsByGram.get(query.substring(i, i + GRAM_LENGTH));
+			if (ids == null) {
+				return List.of();
+			}
+			if (smallest == null || ids.size() < smallest.size()) {
+				smallest = ids;
+			}
+		}
+		List<User> candidates = new ArrayList<>(smallest.size());
+		for (Name id : smallest) {
+			User user = this.usersById.get(id);
+			if (user != null) {
+				candidates.add(user);
+			}
+		}
+		return candidates;
+	}
+
+	private void indexGrams(User user) {
+		for (String gram : grams(user)) {
+			this.idsByGram.computeIfAbsent(gram, (key) -> ConcurrentHashMap.newKeySet()).add(user.getId());
+		}
+	}
+
+	private static boolean matches(User user, String query) {
+		for (String value : values(user)) {
+			if (value.contains(query)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Set<String> grams(User user) {
+		Set<String> grams = new HashSet<>();
+		for (String value : values(user)) {
+			for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+				grams.add(value.substring(i, i + GRAM_LENGTH));
+			}
+		}
+		return grams;
+	}
+
+	private static List<String> values(User user) {
+		List<String> values = new ArrayList<>(3);
+		if (user.getFullName() != null) {
+			values.add(user.getFullName().toLowerCase(Locale.ROOT));
+		}
+		if (user.getEmail() != null) {
+			values.add(user.getEmail().toLowerCase(Locale.ROOT));
+		}
+		values.add(String.valueOf(user.getEmployeeNumber()));
+		return values;
+	}
+
+}
@@ -16,25 +16,41 @@
 
 package org.springframework.ldap.samples.useradmin.service;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.StreamSupport;
 
 import javax.naming.Name;
 import javax.naming.ldap.LdapName;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.ldap.NameNotFoundException;
 import org.springframework.ldap.core.support.BaseLdapNameAware;
+import org.springframework.ldap.filter.AndFilter;
+import org.springframework.ldap.filter.EqualsFilter;
+import org.springframework.ldap.filter.Filter;
+import org.springframework.ldap.filter.NotFilter;
+import org.springframework.ldap.filter.WhitespaceWildcardsFilter;
+import org.springframework.ldap.odm.core.ObjectDirectoryMapper;
 import org.springframework.ldap.samples.useradmin.domain.DirectoryType;
 import org.springframework.ldap.samples.useradmin.domain.Group;
 import org.springframework.ldap.samples.useradmin.domain.GroupRepository;
 import org.springframework.ldap.samples.useradmin.domain.User;
+import org.springframework.ldap.samples.useradmin.domain.UserPage;
 import org.springframework.ldap.samples.useradmin.domain.UserRepository;
+import org.springframework.ldap.samples.useradmin.domain.impl.EntryCache;
 import org.springframework.ldap.support.LdapNameBuilder;
 import org.springframework.ldap.support.LdapUtils;
+import org.springframework.util.StringUtils;
 
 /**
  * The service layer for user administration.
@@ -43,6 +59,8 @@ import org.springframework.ldap.support.LdapUtils;
  */
 public class UserService implements BaseLdapNameAware {
 
+	private static final Log logger = LogFactory.getLog(UserService.class);
+
 	private final UserRepository users;
 
 	private final GroupRepository groups;
@@ -51,6 +69,16 @@ public class UserService implements BaseLdapNameAware {
 
 	private DirectoryType directoryType;
 
+	private UserSearchIndex searchIndex;
+
+	private MemberRenamePropagator memberRenamePropagator;
+
+	private ObjectDirectoryMapper objectDirectoryMapper;
+
+	private EmployeeNumberIndex employeeNumberIndex;
+
+	private EntryCache entryCache;
+
 	@Autowired
 	public UserService(UserRepository users, GroupRepository groups) {
 		this.users = users;
@@ -65,6 +93,54 @@ public class UserService implements BaseLdapNameAware {
 		this.directoryType = directoryType;
 	}
 
+	/**
+	 * Answer {@link #searchByNameName(String)} from an in-process index instead of a
+	 * substring search in the directory. The index is kept current by the create and
+	 * update methods of this service.
+	 * @param searchIndex the index of users
+	 */
+	public void setSearchIndex(UserSearchIndex searchIndex) {
+		this.searchIndex = searchIndex;
+	}
+
+	/**
+	 * Update the member references of all groups of a moved user concurrently, instead of
+	 * one group after another.
+	 * @param memberRenamePropagator the propagator to update the groups with
+	 */
+	public void setMemberRenamePropagator(MemberRenamePropagator memberRenamePropagator) {
+		this.memberRenamePropagator = memberRenamePropagator;
+	}
+
+	/**
+	 * Resolve {@link #findByEmployeeNumber(int)} to the user's DN in memory, so that only
+	 * the user's entry is read instead of searching all users. The index is kept current
+	 * by the create and update methods of this service.
+	 * @param employeeNumberIndex the index of employee numbers
+	 */
+	public void setEmployeeNumberIndex(EmployeeNumberIndex employeeNumberIndex) {
+		this.employeeNumberIndex = employeeNumberIndex;
+	}
+
+	/**
+	 * Answer {@link #findUser(String)} from a cache of mapped entries, and evict the
+	 * users created, changed or moved through this service from it.
+	 * @param entryCache the cache of users and groups
+	 */
+	public void setEntryCache(EntryCache entryCache) {
+		this.entryCache = entryCache;
+	}
+
+	/**
+	 * Calculate the DN an updated user will get from its {@link User} annotations, so
+	 * that on Active Directory the group membership is only looked up before updates that
+	 * move the user.
+	 * @param objectDirectoryMapper the mapper used by the repositories
+	 */
+	public void setObjectDirectoryMapper(ObjectDirectoryMapper objectDirectoryMapper) {
+		this.objectDirectoryMapper = objectDirectoryMapper;
+	}
+
 	@Override
 	public void setBaseLdapPath(LdapName baseLdapPath) {
 		this.baseLdapPath = baseLdapPath;
@@ -74,23 +150,97 @@ public class UserService implements BaseLdapNameAware {
 		return this.users.findAll();
 	}
 
+	/**
+	 * Find one page of users, sorted by full name.
+	 * @param after the cursor to page forward from, or {@code null}
+	 * @param before the cursor to page backward from, or {@code null}; takes precedence
+	 * over {@code after}
+	 * @param pageSize the maximum number of users on the page
+	 * @return the requested page, the first page if neither cursor is given
+	 */
+	public UserPage findPage(String after, String before, int pageSize) {
+		if (before != null) {
+			return this.users.findPageBefore(before, pageSize);
+		}
+		return this.users.findPageAfter(after, pageSize);
+	}
+
 	public User findUser(String userId) {
-		return this.users.findById(LdapUtils.newLdapName(userId))
-			.orElseThrow(() -> new NameNotFoundException("user not found"));
+		LdapName id = LdapUtils.newLdapName(userId);
+		Optional<User> user = (this.entryCache != null) ? this.entryCache.get(id, User.class, this.users::findById)
+				: this.users.findById(id);
+		return user.orElseThrow(() -> new NameNotFoundException("user not found"));
 	}
 
-	public User createUser(User user) {
-		User savedUser = this.users.save(user);
+	public Optional<User> findByEmployeeNumber(int employeeNumber) {
+		if (this.employeeNumberIndex != null) {
+			return this.employeeNumberIndex.findByEmployeeNumber(employeeNumber);
+		}
+		return Optional.ofNullable(this.users.findByEmployeeNumber(employeeNumber));
+	}
 
-		Group userGroup = getUserGroup();
+	/**
+	 * Create a user and add it to the {@link GroupRepository#USER_GROUP} group. The
+	 * member is added with a single modify, without reading the group.
+	 * @param user the user to create
+	 * @return the created user
+	 */
+	public User createUser(User user) {
+		return createUsers(List.of(user)).get(0);
+	}
 
-		// The DN the member attribute must be absolute
-		userGroup.addMember(toAbsoluteDn(savedUser.getId()));
-		this.groups.save(userGroup);
+	/**
+	 * Create users one after another, then add them all to the
+	 * {@link GroupRepository#USER_GROUP} group in one modify. If creating a user fails,
+	 * the users created before it are still added to the group and the failure is
+	 * rethrown; a failure to add them is suppressed by it.
+	 * @param newUsers the users to create
+	 * @return the created users, in the given order
+	 */
+	public List<User> createUsers(Collection<User> newUsers) {
+		List<User> savedUsers = new ArrayList<>(newUsers.size());
+		try {
+			for (User user : newUsers) {
+				savedUsers.add(saveNewUser(user));
+			}
+		}
+		catch (RuntimeException ex) {
+			try {
+				addToUserGroup(savedUsers);
+			}
+			catch (RuntimeException groupFailure) {
+				ex.addSuppressed(groupFailure);
+			}
+			throw ex;
+		}
+		addToUserGroup(savedUsers);
+		return savedUsers;
+	}
 
+	// Create the entry of a user; it is not a member of any group yet.
+	User saveNewUser(User user) {
+		User savedUser = this.users.save(user);
+		evict(savedUser.getId());
 		return savedUser;
 	}
 
+	// Add created users to the user group in one modify, then index them.
+	void addToUserGroup(List<User> savedUsers) {
+		// The DN the member attribute must be absolute
+		List<Name> members = new ArrayList<>(savedUsers.size());
+		savedUsers.forEach((savedUser) -> members.add(toAbsoluteDn(savedUser.getId())));
+		this.groups.addMembers(GroupRepository.USER_GROUP, members);
+
+		for (User savedUser : savedUsers) {
+			if (this.searchIndex != null) {
+				this.searchIndex.add(savedUser);
+			}
+			if (this.employeeNumberIndex != null) {
+				this.employeeNumberIndex.add(savedUser);
+			}
+		}
+	}
+
 	public LdapName toAbsoluteDn(Name relativeName) {
 		return LdapNameBuilder.newInstance(this.baseLdapPath).add(relativeName).build();
 	}
@@ -102,7 +252,39 @@ public class UserService implements BaseLdapNameAware {
 	 * @return the found members
 	 */
 	public Set<User> findAllMembers(Iterable<Name> absoluteIds) {
-		return new LinkedHashSet<>(this.users.findAllById(toRelativeIds(absoluteIds)));
+		return new LinkedHashSet<>(this.users.findAllInBatches(toRelativeIds(absoluteIds)));
+	}
+
+	/**
+	 * Find one page of the users that are not members of a group, optionally only those
+	 * whose full name contains a text. On Active Directory the directory excludes the
+	 * members with a {@code memberOf} filter; other directories may not maintain
+	 * {@code memberOf}, so the members are skipped while reading the users page by page.
+	 * @param group the group
+	 * @param text the text the full names must contain, or {@code null}
+	 * @param after the cursor to page forward from, or {@code null}
+	 * @param before the cursor to page backward from, or {@code null}; takes precedence
+	 * over {@code after}
+	 * @param pageSize the maximum number of users on the page
+	 * @return the requested page of non-members
+	 */
+	public UserPage findNonMembers(Group group, String text, String after, String before, int pageSize) {
+		Filter filter = StringUtils.hasText(text) ? new WhitespaceWildcardsFilter("cn", text) : null;
+		Predicate<User> include = null;
+		if (this.directoryType == DirectoryType.AD) {
+			Filter notMember = new NotFilter(new EqualsFilter("memberOf", toAbsoluteDn(group.getId()).toString()));
+			filter = (filter != null) ? new AndFilter().and(filter).and(notMember) : notMember;
+		}
+		else {
+			Set<Name> members = new HashSet<>();
+			toRelativeIds(group.getMembers()).forEach(members::add);
+			include = (user) -> !members.contains(user.getId());
+		}
+
+		if (before != null) {
+			return this.users.findPageBefore(before, pageSize, filter, include);
+		}
+		return this.users.findPageAfter(after, pageSize, filter, include);
 	}
 
 	public Iterable<Name> toRelativeIds(Iterable<Name> absoluteIds) {
@@ -111,9 +293,19 @@ public class UserService implements BaseLdapNameAware {
 			.toList();
 	}
 
+	/**
+	 * Update a user and, if that gives it a new DN, the groups it is a member of.
+	 * @param userId the id of the user
+	 * @param user the new data of the user
+	 * @return the saved user
+	 * @throws MemberRenameException if the user was moved, but some of its groups could
+	 * not be updated to the new DN
+	 */
 	public User updateUser(String userId, User user) {
 		LdapName originalId = LdapUtils.newLdapName(userId);
-		User existingUser = findUser(userId);
+		// Not through the cache - the user is changed before it is saved.
+		User existingUser = this.users.findById(originalId)
+			.orElseThrow(() -> new NameNotFoundException("user not found"));
 
 		existingUser.setFirstName(user.getFirstName());
 		existingUser.setLastName(user.getLastName());
@@ -127,8 +319,21 @@ public class UserService implements BaseLdapNameAware {
 		if (this.directoryType == DirectoryType.AD) {
 			return updateUserAd(originalId, existingUser);
 		}
-		else {
-			return updateUserStandard(originalId, existingUser);
+		return updateUserStandard(originalId, existingUser);
+	}
+
+	// Bring the caches and indexes up to date before any group is touched, so that they
+	// are right even when the group references cannot be updated.
+	private void saved(LdapName originalId, User savedUser) {
+		evict(originalId);
+		evict(savedUser.getId());
+
+		if (this.searchIndex != null) {
+			this.searchIndex.remove(originalId);
+			this.searchIndex.add(savedUser);
+		}
+		if (this.employeeNumberIndex != null) {
+			this.employeeNumberIndex.add(savedUser);
 		}
 	}
 
@@ -140,14 +345,15 @@ public class UserService implements BaseLdapNameAware {
 	 */
 	private User updateUserStandard(LdapName originalId, User existingUser) {
 		User savedUser = this.users.save(existingUser);
+		saved(originalId, savedUser);
 
 		if (!originalId.equals(savedUser.getId())) {
 			// The user has moved - we need to update group references.
 			LdapName oldMemberDn = toAbsoluteDn(originalId);
 			LdapName newMemberDn = toAbsoluteDn(savedUser.getId());
 
-			Collection<Group> groups = this.groups.findByMember(oldMemberDn);
-			updateGroupReferences(groups, oldMemberDn, newMemberDn);
+			Set<String> groupNames = this.groups.findGroupNamesByMember(oldMemberDn);
+			updateGroupReferences(groupNames, oldMemberDn, newMemberDn);
 		}
 		return savedUser;
 	}
@@ -159,39 +365,76 @@ public class UserService implements BaseLdapNameAware {
 	 * member of, preventing us to update the membership references so that they point to
 	 * the new DN of the user.
 	 *
-	 * This is slightly less efficient, since we need to get the group membership for all
-	 * updates even though the user may not have been moved. Using our knowledge of which
-	 * attributes are part of the distinguished name we can do this more efficiently if we
-	 * are implementing specifically for Active Directory - this approach is just to
-	 * highlight this quite significant difference.
+	 * Since we know which attributes are part of the distinguished name, the new DN of
+	 * the user is calculated up front and the group membership is only fetched if it
+	 * differs from the original one. Without an {@link ObjectDirectoryMapper} the group
+	 * membership is fetched for all updates, even though the user may not have been
+	 * moved.
 	 * @param originalId the original id of the user.
 	 * @param existingUser the user, populated with new data
 	 * @return the updated entry
 	 */
 	private User updateUserAd(LdapName originalId, User existingUser) {
 		LdapName oldMemberDn = toAbsoluteDn(originalId);
-		Collection<Group> groups = this.groups.findByMember(oldMemberDn);
+		Set<String> groupNames = mayMove(originalId, existingUser) ? this.groups.findGroupNamesByMember(oldMemberDn)
+				: Set.of();
 
 		User savedUser = this.users.save(existingUser);
+		saved(originalId, savedUser);
 		LdapName newMemberDn = toAbsoluteDn(savedUser.getId());
 
 		if (!originalId.equals(savedUser.getId())) {
 			// The user has moved - we need to update group references.
-			updateGroupReferences(groups, oldMemberDn, newMemberDn);
+			updateGroupReferences(groupNames, oldMemberDn, newMemberDn);
 		}
 		return savedUser;
 	}
 
-	private void updateGroupReferences(Collection<Group> groups, Name originalId, Name newId) {
-		for (Group group : groups) {
-			group.removeMember(originalId);
-			group.addMember(newId);
+	// Whether saving the user may give it another DN than the original one
+	private boolean mayMove(LdapName originalId, User user) {
+		if (this.objectDirectoryMapper == null) {
+			return true;
+		}
+		return !originalId.equals(this.objectDirectoryMapper.getCalculatedId(user));
+	}
+
+	private void evict(Name id) {
+		if (this.entryCache != null) {
+			this.entryCache.evict(id);
+		}
+	}
+
+	private void updateGroupReferences(Collection<String> groupNames, Name originalId, Name newId) {
+		if (this.memberRenamePropagator == null) {
+			for (String groupName : groupNames) {
+				this.groups.replaceMember(groupName, originalId, newId);
+			}
+			return;
+		}
 
-			this.groups.save(group);
+		MemberRenameSummary summary = this.memberRenamePropagator.renameMember(groupNames, originalId, newId);
+		if (!summary.isSuccessful()) {
+			throw new MemberRenameException(summary);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug(summary);
 		}
 	}
 
+	/**
+	 * Find the users whose full name - or, when the search index is loaded, email address
+	 * or employee number - contains the given text. A text the index has no match for is
+	 * looked up in the directory, in case the entry was added by someone else.
+	 * @param lastName the text to search for
+	 * @return the matching users
+	 */
 	public List<User> searchByNameName(String lastName) {
+		if (this.searchIndex != null && this.searchIndex.isLoaded()) {
+			List<User> found = this.searchIndex.search(lastName);
+			if (!found.isEmpty()) {
+				return found;
+			}
+		}
 		return this.users.findByFullNameContains(lastName);
 	}
 
@@ -16,14 +16,13 @@
 
 package org.springframework.ldap.samples.useradmin.web;
 
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.StreamSupport;
 
 import org.springframework.ldap.samples.useradmin.domain.Group;
 import org.springframework.ldap.samples.useradmin.domain.GroupRepository;
 import org.springframework.ldap.samples.useradmin.domain.User;
+import org.springframework.ldap.samples.useradmin.domain.UserPage;
 import org.springframework.ldap.samples.useradmin.service.UserService;
 import org.springframework.ldap.support.LdapUtils;
 import org.springframework.stereotype.Controller;
@@ -42,6 +41,8 @@ import org.springframework.web.bind.annotation.RequestParam;
 @Controller
 public class GroupController {
 
+	private static final int PAGE_SIZE = 20;
+
 	private final GroupRepository groups;
 
 	private final UserService userService;
@@ -70,38 +71,34 @@ public class GroupController {
 	}
 
 	@GetMapping("/groups/{name}")
-	public String editGroup(@PathVariable("name") String name, ModelMap map) {
+	public String editGroup(@PathVariable("name") String name, ModelMap map,
+			@RequestParam(name = "q", required = false) String text,
+			@RequestParam(name = "after", required = false) String after,
+			@RequestParam(name = "before", required = false) String before) {
 		Group foundGroup = this.groups.findByName(name);
 		map.put("group", foundGroup);
 
-		final Set<User> groupMembers = this.userService.findAllMembers(foundGroup.getMembers());
+		Set<User> groupMembers = this.userService.findAllMembers(foundGroup.getMembers());
 		map.put("members", groupMembers);
 
-		Iterable<User> all = this.userService.findAll();
-		List<User> otherUsers = StreamSupport.stream(all.spliterator(), false)
-			.filter((user) -> !groupMembers.contains(user))
-			.toList();
-		map.put("nonMembers", new LinkedList<>(otherUsers));
+		UserPage nonMembers = this.userService.findNonMembers(foundGroup, text, after, before, PAGE_SIZE);
+		map.put("nonMembers", nonMembers.getUsers());
+		map.put("nonMemberPage", nonMembers);
+		map.put("q", text);
 
 		return "editGroup";
 	}
 
 	@PostMapping("/groups/{name}/members")
 	public String addUserToGroup(@PathVariable("name") String name, @RequestParam("userId") String userId) {
-		Group group = this.groups.findByName(name);
-		group.addMember(this.userService.toAbsoluteDn(LdapUtils.newLdapName(userId)));
-
-		this.groups.save(group);
+		this.groups.addMembers(name, List.of(this.userService.toAbsoluteDn(LdapUtils.newLdapName(userId))));
 
 		return "redirect:/groups/" + name;
 	}
 
 	@DeleteMapping("/groups/{name}/members")
 	public String removeUserFromGroup(@PathVariable("name") String name, @RequestParam("userId") String userId) {
-		Group group = this.groups.findByName(name);
-		group.removeMember(this.userService.toAbsoluteDn(LdapUtils.newLdapName(userId)));
-
-		this.groups.save(group);
+		this.groups.removeMembers(name, List.of(this.userService.toAbsoluteDn(LdapUtils.newLdapName(userId))));
 
 		return "redirect:/groups/" + name;
 	}
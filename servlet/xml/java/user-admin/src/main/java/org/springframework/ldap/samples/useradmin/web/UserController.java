@@ -16,15 +16,23 @@
 
 package org.springframework.ldap.samples.useradmin.web;
 
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
+import org.springframework.http.MediaType;
 import org.springframework.ldap.samples.useradmin.domain.DepartmentRepository;
 import org.springframework.ldap.samples.useradmin.domain.User;
+import org.springframework.ldap.samples.useradmin.domain.UserPage;
+import org.springframework.ldap.samples.useradmin.domain.impl.EmployeeNumberAllocator;
+import org.springframework.ldap.samples.useradmin.service.UserImportResult;
+import org.springframework.ldap.samples.useradmin.service.UserImporter;
 import org.springframework.ldap.samples.useradmin.service.UserService;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
@@ -42,56 +50,69 @@ import org.springframework.web.bind.annotation.RequestParam;
 @Controller
 public class UserController {
 
-	private final AtomicInteger nextEmployeeNumber = new AtomicInteger(10);
+	private static final int PAGE_SIZE = 20;
+
+	private static final String TEXT_CSV = "text/csv";
+
+	private static final String TEXT_LDIF = "text/x-ldif";
 
 	private final UserService userService;
 
 	private final DepartmentRepository departments;
 
-	public UserController(UserService userService, DepartmentRepository departments) {
+	private final EmployeeNumberAllocator employeeNumbers;
+
+	private final UserImporter importer;
+
+	public UserController(UserService userService, DepartmentRepository departments,
+			EmployeeNumberAllocator employeeNumbers, UserImporter importer) {
 		this.userService = userService;
 		this.departments = departments;
+		this.employeeNumbers = employeeNumbers;
+		this.importer = importer;
 	}
 
 	@GetMapping({ "/", "/users" })
-	public String index(ModelMap map, @RequestParam(name = "name", required = false) String name) {
+	public String index(ModelMap map, @RequestParam(name = "name", required = false) String name,
+			@RequestParam(name = "after", required = false) String after,
+			@RequestParam(name = "before", required = false) String before) {
 		if (StringUtils.hasText(name)) {
 			map.put("users", this.userService.searchByNameName(name));
 		}
 		else {
-			map.put("users", this.userService.findAll());
+			UserPage page = this.userService.findPage(after, before, PAGE_SIZE);
+			map.put("users", page.getUsers());
+			map.put("page", page);
 		}
 		return "listUsers";
 	}
 
 	@GetMapping("/users/{userid}")
-	public String getUser(@PathVariable("userid") String userid, ModelMap map) throws JsonProcessingException {
+	public String getUser(@PathVariable("userid") String userid, ModelMap map) {
 		map.put("user", this.userService.findUser(userid));
 		populateDepartments(map);
 		return "editUser";
 	}
 
 	@GetMapping("/newuser")
-	public String initNewUser(ModelMap map) throws JsonProcessingException {
-		User user = new User();
-		user.setEmployeeNumber(this.nextEmployeeNumber.getAndIncrement());
-
+	public String initNewUser(ModelMap map) {
 		map.put("isNew", true);
-		map.put("user", user);
+		map.put("user", new User());
 		populateDepartments(map);
 
 		return "editUser";
 	}
 
-	private void populateDepartments(ModelMap map) throws JsonProcessingException {
-		Map<String, List<String>> departmentMap = this.departments.getDepartmentMap();
-		ObjectMapper objectMapper = new ObjectMapper();
-		String departmentsAsJson = objectMapper.writeValueAsString(departmentMap);
-		map.put("departments", departmentsAsJson);
+	private void populateDepartments(ModelMap map) {
+		map.put("departments", this.departments.getDepartmentMapAsJson());
 	}
 
 	@PostMapping("/newuser")
 	public String createUser(User user) {
+		// Only now, so that opening and abandoning the form does not use up a number.
+		if (user.getEmployeeNumber() == 0) {
+			user.setEmployeeNumber(this.employeeNumbers.next());
+		}
 		User savedUser = this.userService.createUser(user);
 
 		return "redirect:/users/" + savedUser.getId();
@@ -104,4 +125,52 @@ public class UserController {
 		return "redirect:/users/" + savedUser.getId();
 	}
 
+	/**
+	 * Import users from the CSV or LDIF in the request body. The result of every record
+	 * is written as a tab-separated line - record number, {@code CREATED} or
+	 * {@code FAILED}, the user's id and the failure - while the import goes on, followed
+	 * by a summary.
+	 * @param request the request with the records
+	 * @param response the response to write the results to
+	 * @throws IOException if reading the request or writing the response fails
+	 */
+	@PostMapping(path = "/users/import", consumes = { TEXT_CSV, TEXT_LDIF })
+	public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		boolean ldif = MediaType.parseMediaType(request.getContentType())
+			.isCompatibleWith(MediaType.valueOf(TEXT_LDIF));
+		if (request.getCharacterEncoding() == null) {
+			request.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		}
+		response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		PrintWriter out = response.getWriter();
+
+		// Called one result at a time. Each line is sent right away; once the client is
+		// gone, throwing stops the import.
+		int[] counts = new int[2];
+		Consumer<UserImportResult> results = (result) -> {
+			counts[result.isCreated() ? 0 : 1]++;
+			out.println(result);
+			out.flush();
+			if (out.checkError()) {
+				throw new UncheckedIOException(new IOException("Could not write the import results"));
+			}
+		};
+		long start = System.nanoTime();
+		try {
+			if (ldif) {
+				this.importer.importLdif(request.getInputStream(), results);
+			}
+			else {
+				this.importer.importCsv(request.getReader(), results);
+			}
+		}
+		catch (IllegalArgumentException ex) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, ex.getMessage());
+			return;
+		}
+		out.println("# " + counts[0] + " created, " + counts[1] + " failed in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+	}
+
 }
@@ -39,12 +39,30 @@
         </c:forEach>
 
         <h3>Non-Members</h3>
+        <form method="GET" role="form">
+            <div class="row search-form">
+                <div class="col-md-3">
+                    <input type="text" class="form-control" id="q" name="q" value="<c:out value='${q}'/>"/>
+                </div>
+                <div class="col-md-1">
+                    <button type="submit" class="btn btn-default">Filter</button>
+                </div>
+            </div>
+        </form>
         <c:forEach var="user" items="${nonMembers}" varStatus="stat">
             <div class="row">
                 <div class="col-md-3">${user.fullName} - ${user.department}&nbsp;</div>
                 <div class="col-md-1"><a href="#" class="addUserLink" data-id="${user.id}">Add</a></div>
             </div>
         </c:forEach>
+        <ul class="pager">
+            <c:if test="${not empty nonMemberPage.previousCursor}">
+                <li class="previous"><a href="<c:url value='/groups/${group.name}'><c:param name='q' value='${q}'/><c:param name='before' value='${nonMemberPage.previousCursor}'/></c:url>">&larr; Previous</a></li>
+            </c:if>
+            <c:if test="${not empty nonMemberPage.nextCursor}">
+                <li class="next"><a href="<c:url value='/groups/${group.name}'><c:param name='q' value='${q}'/><c:param name='after' value='${nonMemberPage.nextCursor}'/></c:url>">Next &rarr;</a></li>
+            </c:if>
+        </ul>
     </div>
 </div>
 <form id="addUserForm" method="post" action="<c:url value='/groups/${group.name}/members'/>">
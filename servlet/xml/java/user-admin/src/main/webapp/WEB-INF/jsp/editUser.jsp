@@ -44,13 +44,10 @@
 <div class="container">
 <div class="main-body">
     <form method="POST" role="form" class="form-horizontal">
-        <c:if test="${isNew}">
-            <input type="hidden" name="employeeNumber" value="${user.employeeNumber}" />
-        </c:if>
         <div class="form-group">
             <label for="employeeNumber" class="control-label col-md-2">Employee Number</label>
             <div class="col-md-2">
-                <input type="text" disabled="disabled" class="form-control" id="employeeNumber" value="${user.employeeNumber}"/>
+                <input type="text" disabled="disabled" class="form-control" id="employeeNumber" value="${isNew ? '' : user.employeeNumber}" placeholder="Assigned when saved"/>
             </div>
         </div>
         <div class="form-group">
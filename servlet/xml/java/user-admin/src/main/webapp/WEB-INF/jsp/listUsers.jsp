@@ -26,6 +26,16 @@
                 <div class="col-md-1"><a href="<c:url value='/users/${user.id}'/>">Edit</a></div>
             </div>
         </c:forEach>
+        <c:if test="${not empty page}">
+            <ul class="pager">
+                <c:if test="${not empty page.previousCursor}">
+                    <li class="previous"><a href="<c:url value='/users'><c:param name='before' value='${page.previousCursor}'/></c:url>">&larr; Previous</a></li>
+                </c:if>
+                <c:if test="${not empty page.nextCursor}">
+                    <li class="next"><a href="<c:url value='/users'><c:param name='after' value='${page.nextCursor}'/></c:url>">Next &rarr;</a></li>
+                </c:if>
+            </ul>
+        </c:if>
         <div class="button-bottom">
             <div class="col-md-offset-10 col-md-1"><a class="btn btn-primary" href="<c:url value='/newuser' />" role="button">New User</a></div>
         </div>
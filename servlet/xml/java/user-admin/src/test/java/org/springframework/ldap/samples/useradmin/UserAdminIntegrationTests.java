@@ -16,8 +16,26 @@
 
 package org.springframework.ldap.samples.useradmin;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import javax.naming.Name;
 
@@ -25,14 +43,39 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.ldap.NameAlreadyBoundException;
+import org.springframework.ldap.NameNotFoundException;
+import org.springframework.ldap.ServiceUnavailableException;
+import org.springframework.ldap.core.LdapClient;
+import org.springframework.ldap.odm.core.ObjectDirectoryMapper;
 import org.springframework.ldap.samples.useradmin.domain.DepartmentRepository;
+import org.springframework.ldap.samples.useradmin.domain.DirectoryType;
 import org.springframework.ldap.samples.useradmin.domain.Group;
 import org.springframework.ldap.samples.useradmin.domain.GroupRepository;
+import org.springframework.ldap.samples.useradmin.domain.User;
+import org.springframework.ldap.samples.useradmin.domain.UserPage;
+import org.springframework.ldap.samples.useradmin.domain.UserRepository;
+import org.springframework.ldap.samples.useradmin.domain.impl.CachingDepartmentRepository;
+import org.springframework.ldap.samples.useradmin.domain.impl.DepartmentRepositoryImpl;
+import org.springframework.ldap.samples.useradmin.domain.impl.EmployeeNumberAllocator;
+import org.springframework.ldap.samples.useradmin.domain.impl.EntryCache;
+import org.springframework.ldap.samples.useradmin.domain.impl.GroupMembershipIndex;
+import org.springframework.ldap.samples.useradmin.domain.impl.SubtreeSearchDepartmentRepository;
+import org.springframework.ldap.samples.useradmin.domain.impl.UserRepositoryImpl;
+import org.springframework.ldap.samples.useradmin.service.EmployeeNumberIndex;
+import org.springframework.ldap.samples.useradmin.service.MemberRenameException;
+import org.springframework.ldap.samples.useradmin.service.MemberRenamePropagator;
+import org.springframework.ldap.samples.useradmin.service.MemberRenameSummary;
+import org.springframework.ldap.samples.useradmin.service.UserImportResult;
+import org.springframework.ldap.samples.useradmin.service.UserImporter;
+import org.springframework.ldap.samples.useradmin.service.UserSearchIndex;
+import org.springframework.ldap.samples.useradmin.service.UserService;
 import org.springframework.ldap.support.LdapUtils;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 @ExtendWith(SpringExtension.class)
 @ContextConfiguration("/applicationContext.xml")
@@ -44,6 +87,36 @@ public class UserAdminIntegrationTests {
 	@Autowired
 	private DepartmentRepository departments;
 
+	@Autowired
+	private UserRepository users;
+
+	@Autowired
+	private UserSearchIndex searchIndex;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepositoryImpl userRepositoryImpl;
+
+	@Autowired
+	private MemberRenamePropagator memberRenamePropagator;
+
+	@Autowired
+	private LdapClient ldapClient;
+
+	@Autowired
+	private GroupMembershipIndex membershipIndex;
+
+	@Autowired
+	private ObjectDirectoryMapper objectDirectoryMapper;
+
+	@Autowired
+	private EmployeeNumberIndex employeeNumberIndex;
+
+	@Autowired
+	private EntryCache entryCache;
+
 	@Test
 	void createIncludesSystemMember() {
 		Group group = new Group();
@@ -52,8 +125,14 @@ public class UserAdminIntegrationTests {
 		this.groups.create(group);
 		Name systemDn = LdapUtils.newLdapName("cn=System,ou=System,ou=IT,ou=Departments,dc=example,dc=com");
 		Group created = this.groups.findByName("Empty");
-		assertThat(created.getMembers()).isNotEmpty();
-		assertThat(created.getMembers()).contains(systemDn);
+		try {
+			assertThat(created.getMembers()).isNotEmpty();
+			assertThat(created.getMembers()).contains(systemDn);
+		}
+		finally {
+			this.groups.delete(created);
+			this.entryCache.evict(created.getId());
+		}
 	}
 
 	@Test
@@ -64,4 +143,643 @@ public class UserAdminIntegrationTests {
 		assertThat(departments.get("IT")).hasSize(4);
 	}
 
+	@Test
+	void pagesAreSortedByFullNameAndNavigableBothWays() {
+		List<String> all = sortedFullNames((user) -> true);
+		UserPage first = this.users.findPageAfter(null, 4);
+		assertThat(first.getUsers()).extracting(User::getFullName).containsExactlyElementsOf(all.subList(0, 4));
+		assertThat(first.hasPrevious()).isFalse();
+		assertThat(first.hasNext()).isTrue();
+		assertThat(allPages(first, (cursor) -> this.users.findPageAfter(cursor, 4))).isEqualTo(all);
+
+		UserPage second = this.users.findPageAfter(first.getNextCursor(), 4);
+		assertThat(second.hasPrevious()).isTrue();
+
+		UserPage back = this.users.findPageBefore(second.getPreviousCursor(), 4);
+		assertThat(back.getUsers()).isEqualTo(first.getUsers());
+		assertThat(back.hasPrevious()).isFalse();
+		assertThat(back.getNextCursor()).isEqualTo(first.getNextCursor());
+	}
+
+	@Test
+	void cursorsThatCannotBeReadGiveTheFirstPage() {
+		List<User> first = this.users.findPageAfter(null, 4).getUsers();
+		String noSeparator = Base64.getUrlEncoder().encodeToString("no separator".getBytes(StandardCharsets.UTF_8));
+
+		assertThat(this.users.findPageAfter("%%", 4).getUsers()).isEqualTo(first);
+		assertThat(this.users.findPageAfter(noSeparator, 4).getUsers()).isEqualTo(first);
+		UserPage before = this.users.findPageBefore("%%", 4);
+		assertThat(before.getUsers()).isEqualTo(first);
+		assertThat(before.hasPrevious()).isFalse();
+	}
+
+	@Test
+	void searchIsAnsweredFromTheIndexAndFollowsUpdates() throws InterruptedException {
+		assertThat(this.searchIndex.awaitLoaded(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(this.searchIndex.search("doe")).extracting(User::getFullName)
+			.containsExactly("Jane Doe", "John Doe");
+		assertThat(this.searchIndex.search("jo")).extracting(User::getFullName)
+			.containsExactly("John Doe", "John Smith");
+
+		User user = new User();
+		user.setFullName("Index Tester");
+		user.setLastName("Tester");
+		user.setEmail("index.tester@example.com");
+		user.setEmployeeNumber(4711);
+		user.setDepartment("Accounting");
+		user.setUnit("General");
+		User created = this.userService.createUser(user);
+		assertThat(this.userService.searchByNameName("4711")).extracting(User::getId).containsExactly(created.getId());
+
+		User renamed = new User();
+		renamed.setFullName("Renamed Tester");
+		renamed.setLastName("Tester");
+		renamed.setEmail("index.tester@example.com");
+		renamed.setDepartment("Accounting");
+		renamed.setUnit("General");
+		this.userService.updateUser(created.getId().toString(), renamed);
+		assertThat(this.searchIndex.search("index tester")).isEmpty();
+		assertThat(this.userService.searchByNameName("renamed tester")).extracting(User::getFullName)
+			.containsExactly("Renamed Tester");
+
+		Name renamedId = this.userService.searchByNameName("renamed tester").get(0).getId();
+		this.groups.removeMembers(GroupRepository.USER_GROUP, List.of(this.userService.toAbsoluteDn(renamedId)));
+		this.users.deleteById(renamedId);
+	}
+
+	@Test
+	void batchedMemberLookupFindsTheSameUsersAsLookupById() {
+		Group userGroup = this.userService.getUserGroup();
+		List<User> byId = new ArrayList<>();
+		this.users.findAllById(this.userService.toRelativeIds(userGroup.getMembers())).forEach(byId::add);
+
+		this.userRepositoryImpl.setBatchSize(2);
+		try {
+			assertThat(this.userService.findAllMembers(userGroup.getMembers())).hasSameElementsAs(byId);
+		}
+		finally {
+			this.userRepositoryImpl.setBatchSize(100);
+		}
+		Name missing = this.userService.toAbsoluteDn(LdapUtils.newLdapName("cn=Nobody,ou=Nowhere,ou=Departments"));
+		assertThat(this.userService.findAllMembers(List.of(missing))).isEmpty();
+	}
+
+	@Test
+	void nonMembersArePagedAndFilteredByName() {
+		Group powerUsers = this.groups.findByName("POWER_USER");
+		Set<Name> members = new HashSet<>();
+		this.userService.toRelativeIds(powerUsers.getMembers()).forEach(members::add);
+		List<String> nonMembers = sortedFullNames((user) -> !members.contains(user.getId()));
+		UserPage first = this.userService.findNonMembers(powerUsers, null, null, null, 3);
+		assertThat(first.getUsers()).extracting(User::getFullName).containsExactlyElementsOf(nonMembers.subList(0, 3));
+		assertThat(allPages(first, (cursor) -> this.userService.findNonMembers(powerUsers, null, cursor, null, 3)))
+			.isEqualTo(nonMembers);
+
+		UserPage second = this.userService.findNonMembers(powerUsers, null, first.getNextCursor(), null, 3);
+		UserPage back = this.userService.findNonMembers(powerUsers, null, null, second.getPreviousCursor(), 3);
+		assertThat(back.getUsers()).isEqualTo(first.getUsers());
+
+		assertThat(this.userService.findNonMembers(powerUsers, "john", null, null, 3).getUsers())
+			.extracting(User::getFullName)
+			.containsExactlyElementsOf(nonMembers.stream()
+				.filter((name) -> name.toLowerCase(Locale.ROOT).contains("john"))
+				.limit(3)
+				.toList());
+	}
+
+	@Test
+	void membersAreAddedAndRemovedIndividually() {
+		Name janeDoe = LdapUtils.newLdapName("cn=Jane Doe,ou=General,ou=Accounting,ou=Departments,dc=example,dc=com");
+		Name johnDoe = LdapUtils.newLdapName("cn=John Doe,ou=Development,ou=IT,ou=Departments,dc=example,dc=com");
+		Name mordac = LdapUtils
+			.newLdapName("cn=Mordac Preventor of IS,ou=Information Services,ou=IT,ou=Departments,dc=example,dc=com");
+
+		Set<Name> before = this.groups.findByName("ROLE_ADMIN").getMembers();
+		assertThat(before).contains(mordac).doesNotContain(janeDoe, johnDoe);
+
+		this.groups.addMembers("ROLE_ADMIN", List.of(janeDoe, johnDoe));
+		this.groups.addMembers("ROLE_ADMIN", List.of(janeDoe, mordac));
+		assertThat(this.groups.findByName("ROLE_ADMIN").getMembers()).containsAll(before)
+			.contains(janeDoe, johnDoe)
+			.hasSize(before.size() + 2);
+
+		this.groups.removeMembers("ROLE_ADMIN", List.of(janeDoe, johnDoe));
+		this.groups.removeMembers("ROLE_ADMIN", List.of(johnDoe));
+		assertThat(this.groups.findByName("ROLE_ADMIN").getMembers()).isEqualTo(before);
+	}
+
+	@Test
+	void movingAUserUpdatesAllItsGroups() {
+		User user = new User();
+		user.setFullName("Moving Tester");
+		user.setLastName("Tester");
+		user.setEmployeeNumber(4712);
+		user.setDepartment("IT");
+		user.setUnit("Development");
+		User created = this.userService.createUser(user);
+		Name oldDn = this.userService.toAbsoluteDn(created.getId());
+		this.groups.addMembers("POWER_USER", List.of(oldDn));
+
+		User moved = new User();
+		moved.setFullName("Moving Tester");
+		moved.setLastName("Tester");
+		moved.setDepartment("IT");
+		moved.setUnit("Support");
+		User saved = this.userService.updateUser(created.getId().toString(), moved);
+		Name newDn = this.userService.toAbsoluteDn(saved.getId());
+
+		assertThat(newDn).isNotEqualTo(oldDn);
+		assertThat(this.groups.findByMember(oldDn)).isEmpty();
+		assertThat(this.groups.findByMember(newDn)).extracting(Group::getName)
+			.containsExactlyInAnyOrder(GroupRepository.USER_GROUP, "POWER_USER");
+
+		this.groups.removeMembers(GroupRepository.USER_GROUP, List.of(newDn));
+		this.groups.removeMembers("POWER_USER", List.of(newDn));
+		this.users.deleteById(saved.getId());
+	}
+
+	@Test
+	void adUpdatesOnlyLookUpGroupsWhenTheUserMoves() {
+		AtomicInteger lookups = new AtomicInteger();
+		GroupRepository countingGroups = (GroupRepository) Proxy.newProxyInstance(
+				GroupRepository.class.getClassLoader(), new Class<?>[] { GroupRepository.class },
+				(proxy, method, args) -> {
+					if (method.getName().equals("findGroupNamesByMember")) {
+						lookups.incrementAndGet();
+					}
+					return method.invoke(this.groups, args);
+				});
+		UserService adService = new UserService(this.users, countingGroups);
+		adService.setDirectoryType(DirectoryType.AD);
+		adService.setObjectDirectoryMapper(this.objectDirectoryMapper);
+		adService.setBaseLdapPath(LdapUtils.newLdapName("dc=example,dc=com"));
+
+		User user = new User();
+		user.setFullName("Ad Tester");
+		user.setLastName("Tester");
+		user.setEmployeeNumber(4713);
+		user.setDepartment("IT");
+		user.setUnit("Development");
+		User created = adService.createUser(user);
+
+		User edited = new User();
+		edited.setFullName("Ad Tester");
+		edited.setLastName("Tester");
+		edited.setPhone("+46 555-000000");
+		edited.setDepartment("IT");
+		edited.setUnit("Development");
+		User saved = adService.updateUser(created.getId().toString(), edited);
+		assertThat(saved.getId()).isEqualTo(created.getId());
+		assertThat(lookups).hasValue(0);
+
+		edited.setUnit("Support");
+		User moved = adService.updateUser(saved.getId().toString(), edited);
+		Name newDn = adService.toAbsoluteDn(moved.getId());
+		assertThat(lookups).hasValue(1);
+		assertThat(this.groups.findByMember(newDn)).extracting(Group::getName)
+			.containsExactly(GroupRepository.USER_GROUP);
+
+		this.groups.removeMembers(GroupRepository.USER_GROUP, List.of(newDn));
+		this.users.deleteById(moved.getId());
+	}
+
+	@Test
+	void renameSummaryReportsGroupsThatKeepFailing() {
+		Name oldDn = LdapUtils.newLdapName("cn=Old,ou=Departments,dc=example,dc=com");
+		Name newDn = LdapUtils.newLdapName("cn=New,ou=Departments,dc=example,dc=com");
+		this.groups.addMembers("POWER_USER", List.of(oldDn));
+
+		MemberRenameSummary summary = this.memberRenamePropagator.renameMember(List.of("POWER_USER", "NO_SUCH_GROUP"),
+				oldDn, newDn);
+
+		assertThat(summary.isSuccessful()).isFalse();
+		assertThat(summary.getResults()).extracting(MemberRenameSummary.GroupResult::getGroupName)
+			.containsExactly("POWER_USER", "NO_SUCH_GROUP");
+		assertThat(summary.getFailures()).singleElement().satisfies((failure) -> {
+			assertThat(failure.getGroupName()).isEqualTo("NO_SUCH_GROUP");
+			assertThat(failure.getAttempts()).isEqualTo(1);
+		});
+		assertThat(this.groups.findByName("POWER_USER").getMembers()).contains(newDn).doesNotContain(oldDn);
+		this.groups.removeMembers("POWER_USER", List.of(newDn));
+	}
+
+	@Test
+	void renameRetriesTransientFailures() {
+		AtomicInteger replacements = new AtomicInteger();
+		GroupRepository busyOnce = (GroupRepository) Proxy.newProxyInstance(GroupRepository.class.getClassLoader(),
+				new Class<?>[] { GroupRepository.class }, (proxy, method, args) -> {
+					if (method.getName().equals("replaceMember") && replacements.incrementAndGet() == 1) {
+						throw new ServiceUnavailableException(new javax.naming.ServiceUnavailableException("busy"));
+					}
+					return method.invoke(this.groups, args);
+				});
+		MemberRenamePropagator propagator = new MemberRenamePropagator(busyOnce);
+		propagator.setRetryDelayMillis(0);
+		propagator.afterPropertiesSet();
+		Name oldDn = LdapUtils.newLdapName("cn=Old,ou=Departments,dc=example,dc=com");
+		Name newDn = LdapUtils.newLdapName("cn=New,ou=Departments,dc=example,dc=com");
+		this.groups.addMembers("POWER_USER", List.of(oldDn));
+		try {
+			MemberRenameSummary summary = propagator.renameMember(List.of("POWER_USER"), oldDn, newDn);
+
+			assertThat(summary.isSuccessful()).isTrue();
+			assertThat(summary.getResults()).singleElement()
+				.extracting(MemberRenameSummary.GroupResult::getAttempts)
+				.isEqualTo(2);
+		}
+		finally {
+			propagator.destroy();
+			this.groups.removeMembers("POWER_USER", List.of(oldDn, newDn));
+		}
+	}
+
+	@Test
+	void movingAUserFailsWhenAGroupCannotBeUpdated() {
+		GroupRepository readOnlyGroups = (GroupRepository) Proxy.newProxyInstance(
+				GroupRepository.class.getClassLoader(), new Class<?>[] { GroupRepository.class },
+				(proxy, method, args) -> {
+					if (method.getName().equals("replaceMember")) {
+						throw new NameNotFoundException("read only");
+					}
+					return method.invoke(this.groups, args);
+				});
+		MemberRenamePropagator propagator = new MemberRenamePropagator(readOnlyGroups);
+		propagator.afterPropertiesSet();
+		UserService service = new UserService(this.users, readOnlyGroups);
+		service.setBaseLdapPath(LdapUtils.newLdapName("dc=example,dc=com"));
+		service.setMemberRenamePropagator(propagator);
+
+		User user = newUser("Stuck Tester", 4713);
+		user.setUnit("Development");
+		User created = this.userService.createUser(user);
+		Name oldDn = this.userService.toAbsoluteDn(created.getId());
+		User moved = newUser("Stuck Tester", 4713);
+		moved.setUnit("Support");
+		try {
+			assertThatExceptionOfType(MemberRenameException.class)
+				.isThrownBy(() -> service.updateUser(created.getId().toString(), moved))
+				.satisfies((ex) -> assertThat(ex.getSummary().getFailures())
+					.extracting(MemberRenameSummary.GroupResult::getGroupName)
+					.containsExactly(GroupRepository.USER_GROUP));
+			assertThat(this.users.findById(created.getId())).isEmpty();
+		}
+		finally {
+			propagator.destroy();
+			this.groups.removeMembers(GroupRepository.USER_GROUP, List.of(oldDn));
+			this.users.delete(this.users.findByEmployeeNumber(4713));
+		}
+	}
+
+	@Test
+	void departmentsAreCachedWithTheirJson() throws Exception {
+		assertThat(this.departments).isInstanceOf(CachingDepartmentRepository.class);
+		Map<String, List<String>> cached = this.departments.getDepartmentMap();
+		assertThat(this.departments.getDepartmentMap()).isSameAs(cached);
+		assertThat(this.departments.getDepartmentMapAsJson()).isSameAs(this.departments.getDepartmentMapAsJson())
+			.contains("\"Accounting\":[\"General\"]");
+
+		((CachingDepartmentRepository) this.departments).evict();
+		assertThat(this.departments.getDepartmentMap()).isNotSameAs(cached).isEqualTo(cached);
+
+		AtomicInteger loads = new AtomicInteger();
+		CachingDepartmentRepository refreshing = new CachingDepartmentRepository(
+				() -> Map.of("Department", List.of("Unit " + loads.incrementAndGet())));
+		refreshing.setRefreshAheadSeconds(0);
+		try {
+			assertThat(refreshing.getDepartmentMap()).containsEntry("Department", List.of("Unit 1"));
+			for (int i = 0; i < 100 && loads.get() < 2; i++) {
+				refreshing.getDepartmentMap();
+				Thread.sleep(10);
+			}
+			assertThat(loads.get()).isGreaterThanOrEqualTo(2);
+		}
+		finally {
+			refreshing.destroy();
+		}
+
+		// Evicted while the background refresh reads; what it read is not kept.
+		AtomicInteger evictingLoads = new AtomicInteger();
+		CachingDepartmentRepository[] evicting = new CachingDepartmentRepository[1];
+		evicting[0] = new CachingDepartmentRepository(() -> {
+			int load = evictingLoads.incrementAndGet();
+			if (load == 2) {
+				evicting[0].evict();
+			}
+			return Map.of("Department", List.of("Unit " + load));
+		});
+		evicting[0].setRefreshAheadSeconds(0);
+		try {
+			assertThat(evicting[0].getDepartmentMap()).containsEntry("Department", List.of("Unit 1"));
+			// Starts the refresh.
+			evicting[0].getDepartmentMap();
+			for (int i = 0; i < 100 && evictingLoads.get() < 2; i++) {
+				Thread.sleep(10);
+			}
+			Thread.sleep(50);
+			assertThat(evicting[0].getDepartmentMap()).containsEntry("Department", List.of("Unit 3"));
+		}
+		finally {
+			evicting[0].destroy();
+		}
+	}
+
+	@Test
+	void subtreeSearchFindsTheSameDepartmentsAsListingEachDepartment() {
+		Map<String, List<String>> listed = new DepartmentRepositoryImpl(this.ldapClient).getDepartmentMap();
+		Map<String, List<String>> searched = new SubtreeSearchDepartmentRepository(this.ldapClient).getDepartmentMap();
+		assertThat(searched).containsOnlyKeys(listed.keySet());
+		listed.forEach((department, units) -> assertThat(searched.get(department)).hasSameElementsAs(units));
+	}
+
+	@Test
+	void membershipIndexFollowsChangesThroughTheRepositoryAndElsewhere() {
+		Name mordac = LdapUtils
+			.newLdapName("cn=Mordac Preventor of IS,ou=Information Services,ou=IT,ou=Departments,dc=example,dc=com");
+		Name someDude = LdapUtils.newLdapName("cn=Some Dude,ou=Development,ou=IT,ou=Departments,dc=example,dc=com");
+		assertThat(this.groups.findGroupNamesByMember(mordac)).contains("ROLE_USER", "POWER_USER", "ROLE_ADMIN");
+
+		this.groups.addMembers("POWER_USER", List.of(someDude));
+		assertThat(this.membershipIndex.findGroupNames(someDude)).contains("ROLE_USER", "POWER_USER");
+		this.groups.removeMembers("POWER_USER", List.of(someDude));
+		assertThat(this.membershipIndex.findGroupNames(someDude)).doesNotContain("POWER_USER");
+
+		// Saved through Spring Data, so only the modifyTimestamp tells the index.
+		Group powerUsers = this.groups.findByName("POWER_USER");
+		powerUsers.addMember(someDude);
+		this.groups.save(powerUsers);
+		this.membershipIndex.refresh();
+		assertThat(this.membershipIndex.findGroupNames(someDude)).contains("POWER_USER");
+
+		this.groups.removeMembers("POWER_USER", List.of(someDude));
+	}
+
+	@Test
+	void employeeNumbersAreUniqueAcrossAllocatorsSharingTheCounter() throws Exception {
+		EmployeeNumberAllocator first = new EmployeeNumberAllocator(this.ldapClient);
+		EmployeeNumberAllocator second = new EmployeeNumberAllocator(this.ldapClient);
+		first.setBlockSize(5);
+		second.setBlockSize(5);
+
+		Set<Integer> numbers = ConcurrentHashMap.newKeySet();
+		AtomicInteger duplicates = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 8; i++) {
+			EmployeeNumberAllocator allocator = (i % 2 == 0) ? first : second;
+			executor.execute(() -> {
+				for (int j = 0; j < 50; j++) {
+					if (!numbers.add(allocator.next())) {
+						duplicates.incrementAndGet();
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+		assertThat(numbers).hasSize(400);
+		assertThat(duplicates).hasValue(0);
+
+		// A restarted instance continues after the blocks reserved before.
+		int highest = numbers.stream().mapToInt(Integer::intValue).max().getAsInt();
+		assertThat(new EmployeeNumberAllocator(this.ldapClient).next()).isGreaterThan(highest);
+	}
+
+	@Test
+	void employeeNumbersAreResolvedFromTheIndex() {
+		EmployeeNumberIndex index = new EmployeeNumberIndex(this.users);
+		assertThat(index.findByEmployeeNumber(1)).map(User::getFullName).hasValue("John Doe");
+		assertThat(index.getMisses()).isEqualTo(1);
+		assertThat(index.findByEmployeeNumber(1)).map(User::getFullName).hasValue("John Doe");
+		assertThat(index.getHits()).isEqualTo(1);
+		assertThat(index.findByEmployeeNumber(4799)).isEmpty();
+		assertThat(index.getMisses()).isEqualTo(2);
+
+		User user = new User();
+		user.setFullName("Numbered Tester");
+		user.setLastName("Tester");
+		user.setEmployeeNumber(4714);
+		user.setDepartment("IT");
+		user.setUnit("Development");
+		User created = this.userService.createUser(user);
+		long hits = this.employeeNumberIndex.getHits();
+		assertThat(this.userService.findByEmployeeNumber(4714)).map(User::getId).hasValue(created.getId());
+		assertThat(this.employeeNumberIndex.getHits()).isEqualTo(hits + 1);
+
+		this.groups.removeMembers(GroupRepository.USER_GROUP, List.of(this.userService.toAbsoluteDn(created.getId())));
+		this.users.deleteById(created.getId());
+	}
+
+	@Test
+	void usersAndGroupsAreCachedUntilChanged() {
+		String johnDoe = "cn=John Doe,ou=Development,ou=IT,ou=Departments";
+		User user = this.userService.findUser(johnDoe);
+		long hits = this.entryCache.getHitCount();
+		User cached = this.userService.findUser(johnDoe);
+		assertThat(cached).isNotSameAs(user).isEqualTo(user);
+		assertThat(cached.getDepartment()).isEqualTo(user.getDepartment());
+		assertThat(this.entryCache.getHitCount()).isEqualTo(hits + 1);
+		cached.setTitle("Changed Elsewhere");
+		assertThat(this.userService.findUser(johnDoe).getTitle()).isEqualTo(user.getTitle());
+
+		User edited = new User();
+		edited.setFullName(user.getFullName());
+		edited.setLastName(user.getLastName());
+		edited.setTitle("Cached Developer");
+		edited.setDepartment(user.getDepartment());
+		edited.setUnit(user.getUnit());
+		edited.setPhone(user.getPhone());
+		edited.setEmail(user.getEmail());
+		edited.setFirstName(user.getFirstName());
+		this.userService.updateUser(johnDoe, edited);
+		assertThat(this.userService.findUser(johnDoe).getTitle()).isEqualTo("Cached Developer");
+		edited.setTitle(user.getTitle());
+		this.userService.updateUser(johnDoe, edited);
+
+		Name someDude = LdapUtils.newLdapName("cn=Some Dude,ou=Development,ou=IT,ou=Departments,dc=example,dc=com");
+		Group powerUsers = this.groups.findByName("POWER_USER");
+		powerUsers.addMember(someDude);
+		assertThat(this.groups.findByName("POWER_USER").getMembers()).doesNotContain(someDude);
+		this.groups.addMembers("POWER_USER", List.of(someDude));
+		assertThat(this.groups.findByName("POWER_USER").getMembers()).contains(someDude);
+		this.groups.removeMembers("POWER_USER", List.of(someDude));
+		assertThat(this.groups.findByName("POWER_USER").getMembers()).doesNotContain(someDude);
+		assertThat(this.groups.findByName("NO_SUCH_GROUP")).isNull();
+
+		// A group weighs 1 + its members; the three groups together no longer fit.
+		List<Group> all = new ArrayList<>();
+		for (String name : List.of(GroupRepository.USER_GROUP, "POWER_USER", "ROLE_ADMIN")) {
+			all.add(this.groups.findByName(name));
+		}
+		int weight = all.stream().mapToInt((group) -> 1 + group.getMembers().size()).sum();
+		EntryCache small = new EntryCache();
+		small.setMaximumWeight(weight - 1);
+		for (Group group : all) {
+			small.get(group.getId(), Group.class, (dn) -> Optional.of(group));
+		}
+		assertThat(small.getEvictionCount()).isPositive();
+		assertThat(small.getWeight()).isLessThanOrEqualTo(weight - 1);
+	}
+
+	@Test
+	void entriesThatAreTooHeavyOrEvictedWhileReadAreNotCached() {
+		Group userGroup = this.groups.findByName(GroupRepository.USER_GROUP);
+		EntryCache small = new EntryCache();
+		small.setMaximumWeight(userGroup.getMembers().size());
+		small.get(userGroup.getId(), Group.class, (dn) -> Optional.of(userGroup));
+		assertThat(small.getEntryCount()).isZero();
+		assertThat(small.getEvictionCount()).isZero();
+
+		small.setMaximumWeight(1 + userGroup.getMembers().size());
+		small.get(userGroup.getId(), Group.class, (dn) -> {
+			small.evict(dn);
+			return Optional.of(userGroup);
+		});
+		assertThat(small.getEntryCount()).isZero();
+		small.get(userGroup.getId(), Group.class, (dn) -> Optional.of(userGroup));
+		assertThat(small.getEntryCount()).isOne();
+	}
+
+	@Test
+	void usersCreatedInBulkAreAllAddedToTheUserGroup() {
+		List<User> newUsers = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			newUsers.add(newUser("Bulk Tester " + i, 4720 + i));
+		}
+		// The same DN again - creating it fails after the others were created.
+		newUsers.add(newUser("Bulk Tester 0", 4730));
+
+		assertThatExceptionOfType(NameAlreadyBoundException.class)
+			.isThrownBy(() -> this.userService.createUsers(newUsers));
+		List<Name> created = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			created.add(this.userService.toAbsoluteDn(newUsers.get(i).getId()));
+		}
+		assertThat(this.groups.findByName(GroupRepository.USER_GROUP).getMembers()).containsAll(created);
+
+		this.groups.removeMembers(GroupRepository.USER_GROUP, created);
+		newUsers.subList(0, 3).forEach(this.users::delete);
+	}
+
+	@Test
+	void usersCreatedInBulkKeepTheFirstFailureWhenTheUserGroupCannotBeUpdated() {
+		GroupRepository readOnlyGroups = (GroupRepository) Proxy.newProxyInstance(
+				GroupRepository.class.getClassLoader(), new Class<?>[] { GroupRepository.class },
+				(proxy, method, args) -> {
+					if (method.getName().equals("addMembers")) {
+						throw new NameNotFoundException("read only");
+					}
+					return method.invoke(this.groups, args);
+				});
+		UserService service = new UserService(this.users, readOnlyGroups);
+		service.setBaseLdapPath(LdapUtils.newLdapName("dc=example,dc=com"));
+		User first = newUser("Bulk Tester 5", 4735);
+		List<User> newUsers = List.of(first, newUser("Bulk Tester 5", 4736));
+
+		try {
+			assertThatExceptionOfType(NameAlreadyBoundException.class).isThrownBy(() -> service.createUsers(newUsers))
+				.satisfies((ex) -> assertThat(ex.getSuppressed()).singleElement()
+					.isInstanceOf(NameNotFoundException.class));
+		}
+		finally {
+			this.users.delete(first);
+		}
+	}
+
+	@Test
+	void usersAreImportedFromCsvAndLdif() throws IOException {
+		UserImporter importer = new UserImporter(this.userService, this.objectDirectoryMapper);
+		importer.setEmployeeNumberAllocator(new EmployeeNumberAllocator(this.ldapClient));
+		importer.setBaseLdapPath(LdapUtils.newLdapName("dc=example,dc=com"));
+		importer.setParallelism(4);
+		importer.setBatchSize(5);
+		importer.afterPropertiesSet();
+
+		StringBuilder csv = new StringBuilder("fullName, lastName, department, unit, email\n");
+		for (int i = 0; i < 20; i++) {
+			csv.append("Import Tester ")
+				.append(i)
+				.append(",Tester,IT,Development,import")
+				.append(i)
+				.append("@example.com\n");
+		}
+		csv.append("\"Tester, \"\"Quoted\"\"\",Tester,IT,Support,\n");
+		csv.append("Broken Row,Tester\n");
+		csv.append("Import Tester 0,Tester,IT,Development,again@example.com\n");
+		List<UserImportResult> results = new ArrayList<>();
+		importer.importCsv(new StringReader(csv.toString()), results::add);
+
+		String ldif = """
+				dn: cn=Ldif Tester,ou=Support,ou=IT,ou=Departments,dc=example,dc=com
+				objectclass: top
+				objectclass: person
+				objectclass: organizationalPerson
+				objectclass: inetOrgPerson
+				cn: Ldif Tester
+				sn: Tester
+				employeeNumber: 4790
+
+				dn: ou=Not A User,ou=IT,ou=Departments,dc=example,dc=com
+				objectclass: organizationalUnit
+				ou: Not A User
+				""";
+		importer.importLdif(new ByteArrayInputStream(ldif.getBytes(StandardCharsets.UTF_8)), results::add);
+		importer.destroy();
+
+		List<UserImportResult> created = results.stream().filter(UserImportResult::isCreated).toList();
+		assertThat(created).hasSize(22);
+		assertThat(results).filteredOn((result) -> !result.isCreated())
+			.extracting(UserImportResult::getRecordNumber)
+			.containsExactlyInAnyOrder(22, 23, 2);
+		assertThat(results).filteredOn((result) -> !result.isCreated())
+			.extracting(UserImportResult::getFailure)
+			.doesNotContainNull();
+		assertThat(created).extracting((result) -> result.getUserId().toString())
+			.contains("cn=Tester\\, \\\"Quoted\\\",ou=Support,ou=IT,ou=Departments",
+					"cn=Ldif Tester,ou=Support,ou=IT,ou=Departments");
+
+		List<User> imported = created.stream().map((result) -> this.users.findById(result.getUserId()).get()).toList();
+		assertThat(imported).extracting(User::getEmployeeNumber).doesNotHaveDuplicates().contains(4790);
+		List<Name> members = imported.stream()
+			.map((user) -> (Name) this.userService.toAbsoluteDn(user.getId()))
+			.toList();
+		assertThat(this.groups.findByName(GroupRepository.USER_GROUP).getMembers()).containsAll(members);
+
+		this.groups.removeMembers(GroupRepository.USER_GROUP, members);
+		imported.forEach(this.users::delete);
+	}
+
+	// The full names of the users, in the order of the sorted pages.
+	private List<String> sortedFullNames(Predicate<User> include) {
+		List<String> names = new ArrayList<>();
+		for (User user : this.users.findAll()) {
+			if (include.test(user)) {
+				names.add(user.getFullName());
+			}
+		}
+		names.sort(String.CASE_INSENSITIVE_ORDER);
+		return names;
+	}
+
+	// The full names on a page and all the pages after it.
+	private static List<String> allPages(UserPage first, Function<String, UserPage> next) {
+		List<String> names = new ArrayList<>();
+		UserPage page = first;
+		first.getUsers().forEach((user) -> names.add(user.getFullName()));
+		while (page.hasNext()) {
+			page = next.apply(page.getNextCursor());
+			assertThat(page.hasPrevious()).isTrue();
+			page.getUsers().forEach((user) -> names.add(user.getFullName()));
+		}
+		return names;
+	}
+
+	private static User newUser(String fullName, int employeeNumber) {
+		User user = new User();
+		user.setFullName(fullName);
+		user.setLastName("Tester");
+		user.setEmployeeNumber(employeeNumber);
+		user.setDepartment("IT");
+		user.setUnit("Development");
+		return user;
+	}
+
 }